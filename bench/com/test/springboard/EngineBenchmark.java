@@ -0,0 +1,245 @@
+package com.test.springboard;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Plain JVM benchmark of the drag path. Runs the parts of the drag that
+ * do not touch views, the same way the containers call them:
+ *
+ * geometry - rebuilding the cell table and reading every cell origin
+ * hitTest - resolving a touch to a position, getIndexFromCoordinates()
+ * reorder - one ACTION_MOVE step, retargeting the drag session and
+ *           mapping the shifted display range, with a drop every few steps
+ * swap - a grid to tray swap, retargeting and writing both cells
+ * batch - dropping a block of selected items with moveAll()
+ *
+ * Every benchmark runs at each grid size and reports operations per
+ * second and bytes allocated per operation, measured through the
+ * HotSpot thread allocation counter.
+ *
+ * Only needs the engine classes, which do not depend on Android:
+ *
+ *   javac -d /tmp/bench src/com/test/springboard/GridLayoutEngine.java \
+ *       src/com/test/springboard/GridHitTester.java \
+ *       src/com/test/springboard/PositionModel.java \
+ *       src/com/test/springboard/DragSession.java \
+ *       bench/com/test/springboard/EngineBenchmark.java
+ *   java -cp /tmp/bench com.test.springboard.EngineBenchmark [benchmark...]
+ */
+public class EngineBenchmark {
+
+	private static final int[] SIZES = { 16, 64, 256, 1000, 10000 };
+	private static final String[] BENCHMARKS = { "geometry", "hitTest", "reorder", "swap", "batch" };
+
+	private static final int COL_COUNT = 4;
+	private static final int CHILD_SIZE = 120;
+	private static final int HEIGHT = 800;
+	private static final int TRAY_COUNT = 4;
+	private static final int DROP_EVERY = 32;	// Drag steps per drag in the reorder benchmark.
+	private static final int BATCH_SIZE = 8;
+
+	private static final int WARMUP_MS = 300;
+	private static final int ITERATION_MS = 200;
+	private static final int ITERATIONS = 5;
+
+	// Results are folded in here so the JIT cannot drop the work.
+	private static volatile long sSink;
+
+	private final int mSize;
+	private final int mGridCount;
+	private final GridLayoutEngine mLayoutEngine = new GridLayoutEngine();
+	private final DragSession mDragSession = new DragSession();
+	private final PositionModel<Object> mModel;
+	private final Random mRandom = new Random(42);
+
+	// Inputs prepared up front, so the loops only run engine code.
+	private final int[] mTouchX = new int[4096];
+	private final int[] mTouchY = new int[4096];
+	private final int[] mScrollY = new int[4096];
+	private final int[] mSteps = new int[4096];
+	private final int[] mBatchPositions = new int[BATCH_SIZE];
+	private int mInput = 0;
+	private int mDragSteps = 0;
+
+	private EngineBenchmark(int size) {
+		mSize = size;
+		mGridCount = size - TRAY_COUNT;
+		mModel = new PositionModel<Object>(size);
+		for (int i = 0; i < size; i++) {
+			mModel.put(i, Integer.valueOf(i));
+		}
+		mModel.clearDirty();
+		mLayoutEngine.configure(COL_COUNT, CHILD_SIZE, HEIGHT, mGridCount, size);
+
+		int maxScroll = Math.max(0, mLayoutEngine.getGridRowCount() * CHILD_SIZE - HEIGHT);
+		for (int i = 0; i < mTouchX.length; i++) {
+			mTouchX[i] = mRandom.nextInt(COL_COUNT * CHILD_SIZE);
+			mTouchY[i] = mRandom.nextInt(HEIGHT);
+			mScrollY[i] = maxScroll > 0 ? mRandom.nextInt(maxScroll) : 0;
+			// A drag step crosses up to two rows, fast swipes skip cells.
+			mSteps[i] = mRandom.nextInt(4 * COL_COUNT + 1) - 2 * COL_COUNT;
+		}
+	}
+
+	public static void main(String[] args) {
+		String[] benchmarks = args.length > 0 ? args : BENCHMARKS;
+		System.out.println("java " + System.getProperty("java.version") + ", " + ITERATIONS + " x "
+				+ ITERATION_MS + " ms after " + WARMUP_MS + " ms warmup, median reported");
+		System.out.println(String.format("%-10s %7s %16s %12s", "benchmark", "items", "ops/s", "bytes/op"));
+		for (int b = 0; b < benchmarks.length; b++) {
+			if (!Arrays.asList(BENCHMARKS).contains(benchmarks[b])) {
+				System.err.println("unknown benchmark: " + benchmarks[b]);
+				continue;
+			}
+			for (int s = 0; s < SIZES.length; s++) {
+				new EngineBenchmark(SIZES[s]).run(benchmarks[b]);
+			}
+		}
+	}
+
+	private void run(String benchmark) {
+		measure(benchmark, WARMUP_MS);
+		double[] throughput = new double[ITERATIONS];
+		long ops = 0, bytes = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			long allocatedBefore = allocatedBytes();
+			long start = System.nanoTime();
+			long done = measure(benchmark, ITERATION_MS);
+			long elapsed = System.nanoTime() - start;
+			bytes += allocatedBytes() - allocatedBefore;
+			ops += done;
+			throughput[i] = done * 1e9 / elapsed;
+		}
+		Arrays.sort(throughput);
+		String bytesPerOp = allocatedBytes() < 0 ? "n/a" : String.format("%.2f", (double) bytes / ops);
+		System.out.println(String.format("%-10s %7d %16.0f %12s", benchmark, mSize, throughput[ITERATIONS / 2], bytesPerOp));
+	}
+
+	// Runs the benchmark in chunks until the time is up, returns the
+	// number of operations done.
+	private long measure(String benchmark, int millis) {
+		long end = System.nanoTime() + millis * 1000000L;
+		long ops = 0;
+		long sink = 0;
+		do {
+			if (benchmark.equals("geometry")) {
+				sink += geometry();
+				ops++;
+			} else if (benchmark.equals("hitTest")) {
+				sink += hitTest(1024);
+				ops += 1024;
+			} else if (benchmark.equals("reorder")) {
+				sink += reorder(256);
+				ops += 256;
+			} else if (benchmark.equals("swap")) {
+				sink += swap(256);
+				ops += 256;
+			} else {
+				sink += batch(16);
+				ops += 16;
+			}
+		} while (System.nanoTime() < end);
+		sSink += sink;
+		return ops;
+	}
+
+	// Changes the height so the next read rebuilds the table, then reads
+	// every cell the way a full layout pass does.
+	private long geometry() {
+		mLayoutEngine.configure(COL_COUNT, CHILD_SIZE, (mInput++ & 1) == 0 ? HEIGHT : HEIGHT + 1, mGridCount, mSize);
+		long sum = 0;
+		for (int i = 0; i < mSize; i++) {
+			sum += mLayoutEngine.getLeft(i) + mLayoutEngine.getTop(i);
+		}
+		return sum;
+	}
+
+	private long hitTest(int count) {
+		long sum = 0;
+		for (int k = 0; k < count; k++) {
+			int i = mInput++ & (mTouchX.length - 1);
+			sum += mLayoutEngine.getIndex(mTouchX[i], mTouchY[i], mScrollY[i]);
+		}
+		return sum;
+	}
+
+	// Same work as retargetDrag() in the containers, minus the views: the
+	// display positions between the old and the new target are mapped to
+	// model positions and the ones whose cell changed read their new origin.
+	private long reorder(int count) {
+		long sum = 0;
+		for (int k = 0; k < count; k++) {
+			if (!mDragSession.isActive()) mDragSession.begin(mRandom.nextInt(mGridCount));
+			int origin = mDragSession.getOrigin();
+			int oldTarget = mDragSession.getTarget();
+			int target = oldTarget + mSteps[mInput++ & (mSteps.length - 1)];
+			if (target < 0) target = 0;
+			if (target >= mGridCount) target = mGridCount - 1;
+			if (target == oldTarget) continue;
+
+			mDragSession.moveTo(target);
+			int first = Math.min(oldTarget, target);
+			int last = Math.max(oldTarget, target);
+			for (int i = first; i <= last; i++) {
+				int modelPos = mDragSession.toModelPosition(i);
+				if (modelPos == origin) continue;
+				if (DragSession.toDisplayPosition(DragSession.KIND_MOVE, origin, oldTarget, modelPos) != i) {
+					sum += mLayoutEngine.getLeft(i) + mLayoutEngine.getTop(i);
+				}
+			}
+
+			if (++mDragSteps % DROP_EVERY == 0) {
+				mDragSession.end();
+				mModel.move(origin, target);
+				mModel.clearDirty();
+			}
+		}
+		return sum;
+	}
+
+	// A grid item dropped onto a tray item, they trade places.
+	private long swap(int count) {
+		long sum = 0;
+		for (int k = 0; k < count; k++) {
+			int gridPos = mRandom.nextInt(mGridCount);
+			int trayPos = mGridCount + mRandom.nextInt(TRAY_COUNT);
+			mDragSession.begin(gridPos);
+			mDragSession.swapWith(trayPos);
+			sum += mDragSession.toModelPosition(gridPos) + mDragSession.toDisplayPosition(trayPos);
+			sum += mLayoutEngine.getLeft(gridPos) + mLayoutEngine.getTop(trayPos);
+			mDragSession.end();
+			Object item = mModel.get(trayPos);
+			mModel.put(trayPos, mModel.get(gridPos));
+			mModel.put(gridPos, item);
+			mModel.clearDirty();
+		}
+		return sum;
+	}
+
+	// BATCH_SIZE items spread over the grid dropped as one block.
+	private long batch(int count) {
+		long sum = 0;
+		int span = mGridCount / BATCH_SIZE;
+		for (int k = 0; k < count; k++) {
+			for (int j = 0; j < BATCH_SIZE; j++) {
+				mBatchPositions[j] = j * span + mRandom.nextInt(span);
+			}
+			int target = mRandom.nextInt(mGridCount - BATCH_SIZE + 1);
+			mDragSession.beginBatch(mBatchPositions, BATCH_SIZE, target);
+			sum += mDragSession.toModelPosition(target) + mDragSession.toDisplayPosition(mBatchPositions[0]);
+			mDragSession.end();
+			mModel.moveAll(mBatchPositions, BATCH_SIZE, target);
+			mModel.clearDirty();
+		}
+		return sum;
+	}
+
+	// Bytes allocated by this thread so far, or -1 if the JVM cannot tell.
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) return -1;
+		return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
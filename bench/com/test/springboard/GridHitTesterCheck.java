@@ -0,0 +1,110 @@
+package com.test.springboard;
+
+import java.util.Random;
+
+/**
+ * Plain JVM check that GridHitTester resolves every touch to the same
+ * position as the per-cell loop it replaced, which walked all cells in
+ * position order and returned the first one strictly containing the
+ * touch.
+ *
+ * Geometries are random: column counts, cell sizes, grid and tray
+ * counts, tray bands above, inside and below the grid, and scroll
+ * offsets. Touches are random too, biased towards cell borders and the
+ * pixels next to them, with coordinates in the gaps between the grid
+ * and the tray, on the tray band and outside the container on every side.
+ *
+ * Only needs GridHitTester, which does not depend on Android:
+ *
+ *   javac -d /tmp/bench src/com/test/springboard/GridHitTester.java \
+ *       bench/com/test/springboard/GridHitTesterCheck.java
+ *   java -cp /tmp/bench com.test.springboard.GridHitTesterCheck [seed]
+ *
+ * Exits with status 1 and prints the first mismatch if they disagree.
+ */
+public class GridHitTesterCheck {
+
+	private static final int GEOMETRIES = 2000;
+	private static final int TOUCHES = 2000;	// Per geometry.
+
+	private static int sColCount;
+	private static int sChildSize;
+	private static int sGridCount;
+	private static int sTrayCount;
+	private static int sTrayTop;
+
+	public static void main(String[] args) {
+		long seed = args.length > 0 ? Long.parseLong(args[0]) : System.nanoTime();
+		Random random = new Random(seed);
+		GridHitTester tester = new GridHitTester();
+		long touches = 0, hits = 0, trayHits = 0;
+
+		for (int g = 0; g < GEOMETRIES; g++) {
+			sColCount = 1 + random.nextInt(6);
+			sChildSize = 1 + random.nextInt(random.nextBoolean() ? 8 : 160);
+			sGridCount = random.nextInt(8) == 0 ? 0 : random.nextInt(60);
+			sTrayCount = random.nextInt(8);
+			int gridHeight = (sGridCount + sColCount - 1) / sColCount * sChildSize;
+			// Tray band anywhere from above the grid to well below it, so
+			// it overlaps the grid, touches it or leaves a gap.
+			sTrayTop = random.nextInt(gridHeight + 4 * sChildSize + 1) - 2 * sChildSize;
+			int scrollY = random.nextInt(4) == 0 ? 0 : random.nextInt(gridHeight + 1);
+			tester.configure(sColCount, sChildSize, sGridCount, sTrayCount, sTrayTop);
+
+			int width = Math.max(sColCount, sTrayCount) * sChildSize;
+			int height = Math.max(gridHeight, sTrayTop + sChildSize);
+			for (int t = 0; t < TOUCHES; t++) {
+				int x = coordinate(random, width);
+				int y = coordinate(random, height);
+				int expected = loopIndex(x, y, scrollY);
+				int actual = scrollY == 0 && random.nextBoolean() ? tester.getIndex(x, y) : tester.getIndex(x, y, scrollY);
+				if (actual != expected) {
+					System.err.println("mismatch with seed " + seed + ": colCount " + sColCount + " childSize " + sChildSize
+							+ " gridCount " + sGridCount + " trayCount " + sTrayCount + " trayTop " + sTrayTop
+							+ " scrollY " + scrollY + " at (" + x + ", " + y + "): expected " + expected + " got " + actual);
+					System.exit(1);
+				}
+				touches++;
+				if (expected >= 0) hits++;
+				if (expected >= sGridCount) trayHits++;
+			}
+		}
+		System.out.println("ok, seed " + seed + ": " + touches + " touches, " + hits + " hits, " + trayHits + " on the tray");
+	}
+
+	// A coordinate inside, on the edge of or outside [0, extent], with
+	// cell borders and the pixels around them picked often.
+	private static int coordinate(Random random, int extent) {
+		switch (random.nextInt(4)) {
+			case 0:
+				return random.nextInt(extent + 1);
+			case 1:
+				return random.nextInt(extent / sChildSize + 2) * sChildSize + random.nextInt(3) - 1;
+			case 2:
+				return sTrayTop + random.nextInt(3) - 1 + (random.nextBoolean() ? sChildSize : 0);
+			default:
+				// Outside the container, including far away.
+				int outside = 1 + random.nextInt(random.nextBoolean() ? 2 * sChildSize : Integer.MAX_VALUE / 4);
+				return random.nextBoolean() ? -outside : extent + outside;
+		}
+	}
+
+	// The per-cell loop GridHitTester replaced, with the scroll applied
+	// to grid cells only since the tray stays pinned.
+	private static int loopIndex(int x, int y, int scrollY) {
+		for (int i = 0; i < sGridCount + sTrayCount; i++) {
+			int left, top;
+			if (i < sGridCount) {
+				left = sChildSize * (i % sColCount);
+				top = sChildSize * (i / sColCount) - scrollY;
+			} else {
+				left = sChildSize * (i - sGridCount);
+				top = sTrayTop;
+			}
+			if (x > left && x < left + sChildSize && y > top && y < top + sChildSize) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
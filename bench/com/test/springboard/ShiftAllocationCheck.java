@@ -0,0 +1,158 @@
+package com.test.springboard;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.View;
+
+/**
+ * Plain JVM check that an ACTION_MOVE step which shifts icons allocates
+ * nothing once warmed up. Runs the same calls DraggableView makes from
+ * its drag frame: the touch is hit tested, the drag session is retargeted
+ * and every icon in the shifted range is sent to its new cell through
+ * the shipping ShiftAnimator, whose frames run in between. Drops end the
+ * drag every few steps and move the item in the model.
+ *
+ * The views, the frame callbacks and the clock are the stand-ins under
+ * bench/stubs, everything else is the shipping code:
+ *
+ *   javac -d /tmp/bench -sourcepath bench/stubs:src:gen \
+ *       bench/com/test/springboard/ShiftAllocationCheck.java
+ *   java -cp /tmp/bench com.test.springboard.ShiftAllocationCheck
+ *
+ * Allocations are read from the HotSpot thread allocation counter. Exits
+ * with status 1 if the measured steps allocated anything in every round.
+ */
+public class ShiftAllocationCheck {
+
+	private static final int COL_COUNT = 4;
+	private static final int CHILD_SIZE = 120;
+	private static final int HEIGHT = 800;
+	private static final int TRAY_COUNT = 4;
+	private static final int ITEM_COUNT = 200;
+	private static final int DURATION = 150;
+	private static final int FRAME_MS = 16;
+	private static final int DROP_EVERY = 40;
+
+	private static final int WARMUP_STEPS = 200000;
+	private static final int MEASURED_STEPS = 200000;
+	private static final int MEASURED_ROUNDS = 3;
+
+	private final GridLayoutEngine mLayoutEngine = new GridLayoutEngine();
+	private final DragSession mDragSession = new DragSession();
+	private final PositionModel<View> mGridModel = new PositionModel<View>(ITEM_COUNT);
+	private final View mHost = new View(null);
+	private final ShiftAnimator mShiftAnimator = new ShiftAnimator(mHost, DURATION);
+	private final Random mRandom = new Random(7);
+
+	// Touches prepared up front, Random itself does not allocate.
+	private final int[] mTouchX = new int[4096];
+	private final int[] mTouchY = new int[4096];
+	private int mInput = 0;
+	private int mScrollY = 0;
+	private int mSteps = 0;
+	private int mShifts = 0;
+
+	public static void main(String[] args) {
+		ShiftAllocationCheck check = new ShiftAllocationCheck();
+		check.run(WARMUP_STEPS);
+		long before = allocatedBytes();
+		if (before < 0) {
+			System.out.println("skipped, this JVM has no thread allocation counter");
+			return;
+		}
+		// Reading the counter allocates too, take that out of the result.
+		long overhead = allocatedBytes() - before;
+		// HotSpot now and then charges a few hundred bytes to this thread
+		// in a different round every run, so the quietest round counts.
+		// Steps that allocate would show in every round.
+		long bytes = Long.MAX_VALUE;
+		int shifts = 0;
+		for (int round = 0; round < MEASURED_ROUNDS && bytes != 0; round++) {
+			shifts = check.mShifts;
+			before = allocatedBytes();
+			check.run(MEASURED_STEPS);
+			bytes = Math.min(bytes, allocatedBytes() - before - overhead);
+			shifts = check.mShifts - shifts;
+		}
+		if (bytes != 0) {
+			System.err.println("failed: " + MEASURED_STEPS + " drag steps with " + shifts + " shifts allocated " + bytes + " bytes");
+			System.exit(1);
+		}
+		System.out.println("ok: " + MEASURED_STEPS + " drag steps with " + shifts + " shifts allocated nothing");
+	}
+
+	private ShiftAllocationCheck() {
+		mLayoutEngine.configure(COL_COUNT, CHILD_SIZE, HEIGHT, ITEM_COUNT - TRAY_COUNT, ITEM_COUNT);
+		for (int i = 0; i < ITEM_COUNT; i++) {
+			View view = new View(null);
+			view.layout(mLayoutEngine.getLeft(i), getCellTop(i), mLayoutEngine.getLeft(i) + CHILD_SIZE, getCellTop(i) + CHILD_SIZE);
+			mGridModel.put(i, view);
+		}
+		mGridModel.clearDirty();
+		for (int i = 0; i < mTouchX.length; i++) {
+			mTouchX[i] = mRandom.nextInt(COL_COUNT * CHILD_SIZE);
+			mTouchY[i] = mRandom.nextInt(HEIGHT);
+		}
+	}
+
+	private void run(int steps) {
+		for (int k = 0; k < steps; k++) {
+			if (!mDragSession.isActive()) {
+				mScrollY = mRandom.nextInt(mLayoutEngine.getGridRowCount() * CHILD_SIZE - HEIGHT);
+				mDragSession.begin(mRandom.nextInt(ITEM_COUNT - TRAY_COUNT));
+			}
+			int i = mInput++ & (mTouchX.length - 1);
+			dragTo(mTouchX[i], mTouchY[i]);
+			frame();
+			if (++mSteps % DROP_EVERY == 0) drop();
+		}
+	}
+
+	// DraggableView.applyPendingDrag() without the dragged view itself.
+	private void dragTo(int x, int y) {
+		int index = mLayoutEngine.getIndex(x, y, mScrollY);
+		if (index < 0 || mLayoutEngine.isTray(index) || index == mDragSession.getTarget()) return;
+		int oldTarget = mDragSession.getTarget();
+		mDragSession.moveTo(index);
+		View dragged = mGridModel.get(mDragSession.getOrigin());
+		mShiftAnimator.beginBatch();
+		for (int i = Math.min(oldTarget, index); i <= Math.max(oldTarget, index); i++) {
+			View child = mGridModel.get(mDragSession.toModelPosition(i));
+			if (child == null || child == dragged) continue;
+			mShiftAnimator.animateTo(child, mLayoutEngine.getLeft(i), getCellTop(i));
+			mShifts++;
+		}
+		mShiftAnimator.endBatch();
+	}
+
+	// Runs the animation frame posted for the next vsync, if any.
+	private void frame() {
+		Looper.myQueue().runUntil(SystemClock.uptimeMillis() + FRAME_MS);
+	}
+
+	private void drop() {
+		int origin = mDragSession.getOrigin();
+		int target = mDragSession.getTarget();
+		mDragSession.end();
+		mGridModel.move(origin, target);
+		mGridModel.clearDirty();
+		View dragged = mGridModel.get(target);
+		dragged.offsetLeftAndRight(mLayoutEngine.getLeft(target) - dragged.getLeft());
+		dragged.offsetTopAndBottom(getCellTop(target) - dragged.getTop());
+	}
+
+	private int getCellTop(int position) {
+		int top = mLayoutEngine.getTop(position);
+		return mLayoutEngine.isTray(position) ? top + mScrollY : top;
+	}
+
+	// Bytes allocated by this thread so far, or -1 if the JVM cannot tell.
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) return -1;
+		return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
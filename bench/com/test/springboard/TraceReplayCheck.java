@@ -0,0 +1,360 @@
+package com.test.springboard;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.View.MeasureSpec;
+
+/**
+ * Plain JVM replay of touch traces through the shipping DraggableView,
+ * fed by the shipping TouchTraceReplayer. The container is set up the
+ * way the springboard activity sets it up, with a reorder listener and
+ * a drop listener, so hovering, dropping and the dwell after leaving a
+ * drop target all run. Animation frames, posted runnables and layout
+ * passes run from the main queue stand-in in between the events, at
+ * the times they would on the device.
+ *
+ * Each replay checks the order and the drops the container reported,
+ * and the replayer's report: no layout pass during the drag, the number
+ * of shift animations started, no allocations while dispatching a move
+ * and the time spent handling each record. Allocations are bytes here,
+ * see the Debug stand-in.
+ *
+ * The framework classes are the stand-ins under bench/stubs, which come
+ * first on the source path so the activity stand-in is used as well:
+ *
+ *   javac -d /tmp/bench -sourcepath bench/stubs:src:gen \
+ *       bench/com/test/springboard/TraceReplayCheck.java
+ *   java -cp /tmp/bench com.test.springboard.TraceReplayCheck
+ *   java -cp /tmp/bench com.test.springboard.TraceReplayCheck touch_trace.bin \
+ *       width height colCount gridCount itemCount [id,id,...]
+ *
+ * Without arguments a set of built in traces is written in the
+ * TouchTraceRecorder format, read back and replayed, every one of them
+ * twice so the second replay runs warmed up and is the one checked.
+ * Given a trace pulled off a device, it is replayed on a window of the
+ * given size and the final order and the report are printed, and the
+ * order is checked if an expected one is given.
+ *
+ * Exits with status 1 if a check fails.
+ */
+public class TraceReplayCheck {
+
+	// Same geometry as the springboard activity on a 480x800 screen,
+	// cells are 120 pixels and the tray row starts at 680.
+	private static final int WIDTH = 480;
+	private static final int HEIGHT = 800;
+	private static final int COL_COUNT = 4;
+	private static final int GRID_COUNT = 10;
+	private static final int ITEM_COUNT = 14;
+
+	private static final long SETTLE_MS = 1000;			// Left for animations to finish.
+	private static final long MAX_HANDLING_NANOS = 20000000;	// Per record, warmed up.
+
+	private final DraggableView mView;
+	private final int[] mOrder;
+	private final List<String> mDrops = new ArrayList<String>();
+	private TouchTraceReplayer.Report mReport;
+
+	private TraceReplayCheck(int width, int height, int colCount, int gridCount, int itemCount) {
+		final Context context = new Context(width, height);
+		mView = new DraggableView(context);
+		mView.setColumnCount(colCount);
+		mView.setGridViewCount(gridCount);
+		mView.setReorderListener(mReorderListener);
+		mView.setOnItemDropListener(new DraggableView.OnItemDropListener() {
+			@Override
+			public void onItemDropped(int position, int targetPosition) {
+				mDrops.add(mOrder[position] + " onto " + mOrder[targetPosition]);
+			}
+		});
+		mOrder = new int[itemCount];
+		ArrayList<SpringboardItem> items = new ArrayList<SpringboardItem>(itemCount);
+		for (int i = 0; i < itemCount; i++) {
+			mOrder[i] = i;
+			items.add(new SpringboardItem(i, "EG " + i, 0));
+		}
+		mView.setItems(items, new DraggableView.ItemBinder() {
+			@Override
+			public View createView(SpringboardItem item) {
+				return new View(context);
+			}
+
+			@Override
+			public void bindView(View view, SpringboardItem item) {
+			}
+		});
+		mView.measure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+				MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY));
+		mView.layout(0, 0, width, height);
+		runFor(SETTLE_MS);
+	}
+
+	// Keeps mOrder as the ids shown at each position.
+	private final ReorderListener mReorderListener = new ReorderListener() {
+		@Override
+		public void onItemMoved(int fromPos, int toPos) {
+			PositionModel.moveInArray(mOrder, fromPos, toPos);
+		}
+
+		@Override
+		public void onItemsSwapped(int posA, int posB) {
+			int id = mOrder[posA];
+			mOrder[posA] = mOrder[posB];
+			mOrder[posB] = id;
+		}
+
+		@Override
+		public void onItemsMoved(int[] positions, int count, int toPos) {
+			PositionModel.moveAllInArray(mOrder, positions, count, toPos);
+		}
+	};
+
+	public static void main(String[] args) throws IOException {
+		if (args.length > 0) {
+			if (args.length < 6) {
+				System.err.println("usage: TraceReplayCheck trace width height colCount gridCount itemCount [id,id,...]");
+				System.exit(2);
+			}
+			TraceReplayCheck check = new TraceReplayCheck(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+					Integer.parseInt(args[3]), Integer.parseInt(args[4]), Integer.parseInt(args[5]));
+			TouchTraceReplayer.Report report = check.replay(new File(args[0]));
+			if (report == null) {
+				System.err.println("not a touch trace: " + args[0]);
+				System.exit(2);
+			}
+			System.out.println(Arrays.toString(check.mOrder) + " drops: " + check.mDrops);
+			System.out.println(report);
+			if (args.length > 6 && !Arrays.equals(check.mOrder, parseOrder(args[6]))) {
+				System.err.println("failed: expected " + args[6]);
+				System.exit(1);
+			}
+			return;
+		}
+
+		boolean ok = true;
+		// Cell (column, row) spans 120 * column to 120 * column + 120 and
+		// the same for rows, the middle half of it is its drop zone. Moves
+		// that should reorder stay clear of the drop zones.
+		ok &= check("drag 0 to 6", new TraceBuilder()
+				.down(0, 60, 60).longClick(500)
+				.move(520, 170, 20).move(560, 250, 130, 200, 60, 225, 95)
+				.up(600, 250, 130),
+				move(identity(ITEM_COUNT), 0, 6), 6);
+		// The last sample is right of the grid, the newest batched one is on cell 8.
+		ok &= check("fast swipe ends outside every cell", new TraceBuilder()
+				.down(0, 180, 300).longClick(500)
+				.move(540, 530, 290, 130, 250, 20, 250)
+				.up(560, 530, 290),
+				move(identity(ITEM_COUNT), 9, 8), 1);
+		ok &= check("drag 2 onto the tray", new TraceBuilder()
+				.down(0, 300, 60).longClick(500)
+				.move(540, 250, 500).move(580, 130, 690)
+				.up(600, 130, 690),
+				move(identity(ITEM_COUNT), 2, 11), 9);
+		ok &= check("drop 0 onto 5", new TraceBuilder()
+				.down(0, 60, 60).longClick(500)
+				.move(520, 180, 180)
+				.up(600, 180, 180),
+				identity(ITEM_COUNT), 0, "0 onto 5");
+		// Passing over the middle of cell 1 holds the reorder, leaving it
+		// holds it for the dwell, so the up right after does not reorder.
+		ok &= check("up during the dwell", new TraceBuilder()
+				.down(0, 60, 60).longClick(500)
+				.move(520, 180, 60).move(540, 250, 130)
+				.up(560, 250, 130),
+				identity(ITEM_COUNT), 0);
+		// Resting on cell 6 past the dwell reorders to it without another move.
+		ok &= check("rest past the dwell", new TraceBuilder()
+				.down(0, 60, 60).longClick(500)
+				.move(520, 180, 60).move(540, 250, 130)
+				.up(760, 250, 130),
+				move(identity(ITEM_COUNT), 0, 6), 6);
+		ok &= check("cancelled drag", new TraceBuilder()
+				.down(0, 60, 60).longClick(500)
+				.move(540, 250, 130)
+				.cancel(560, 250, 130),
+				identity(ITEM_COUNT), 12);
+		ok &= check("move without a long click", new TraceBuilder()
+				.down(0, 60, 60)
+				.move(100, 250, 250)
+				.up(140, 250, 250),
+				identity(ITEM_COUNT), 0);
+		ok &= check("long click between cells", new TraceBuilder()
+				.down(0, 120, 60).longClick(500)
+				.move(540, 250, 250)
+				.up(560, 250, 250),
+				identity(ITEM_COUNT), 0);
+		if (!ok) System.exit(1);
+	}
+
+	// Writes the trace to a file, replays it twice on fresh containers
+	// and checks the second replay.
+	private static boolean check(String name, TraceBuilder builder, int[] expectedOrder, long expectedAnimationStarts,
+			String... expectedDrops) throws IOException {
+		File file = File.createTempFile("touch_trace", ".bin");
+		try {
+			FileOutputStream out = new FileOutputStream(file);
+			try {
+				out.write(builder.encode());
+			} finally {
+				out.close();
+			}
+			new TraceReplayCheck(WIDTH, HEIGHT, COL_COUNT, GRID_COUNT, ITEM_COUNT).replay(file);
+			TraceReplayCheck check = new TraceReplayCheck(WIDTH, HEIGHT, COL_COUNT, GRID_COUNT, ITEM_COUNT);
+			TouchTraceReplayer.Report report = check.replay(file);
+			if (report == null) {
+				System.err.println(name + ": trace did not read back");
+				return false;
+			}
+			return check.expect(name, TouchTrace.load(file), report, expectedOrder, expectedAnimationStarts,
+					Arrays.asList(expectedDrops));
+		} finally {
+			file.delete();
+		}
+	}
+
+	private boolean expect(String name, TouchTrace trace, TouchTraceReplayer.Report report, int[] expectedOrder,
+			long expectedAnimationStarts, List<String> expectedDrops) {
+		StringBuilder failures = new StringBuilder();
+		if (!Arrays.equals(mOrder, expectedOrder)) {
+			failures.append("\n  order ").append(Arrays.toString(mOrder))
+					.append(", expected ").append(Arrays.toString(expectedOrder));
+		}
+		if (!mDrops.equals(expectedDrops)) {
+			failures.append("\n  drops ").append(mDrops).append(", expected ").append(expectedDrops);
+		}
+		if (report.eventCount != trace.getRecordCount()) {
+			failures.append("\n  replayed ").append(report.eventCount).append(" of ").append(trace.getRecordCount()).append(" records");
+		}
+		if (report.layoutPasses != 0) {
+			failures.append("\n  ").append(report.layoutPasses).append(" layout passes");
+		}
+		if (report.animationStarts != expectedAnimationStarts) {
+			failures.append("\n  ").append(report.animationStarts).append(" animation starts, expected ").append(expectedAnimationStarts);
+		}
+		int record = 0;
+		for (int i = 0; i < trace.getEnd(); i = trace.next(i), record++) {
+			if (trace.getAction(i) == MotionEvent.ACTION_MOVE && report.allocations[record] != 0) {
+				failures.append("\n  move at ").append(trace.getTime(i)).append(" ms allocated ")
+						.append(report.allocations[record]).append(" bytes");
+			}
+		}
+		if (report.getMaxNanos() > MAX_HANDLING_NANOS) {
+			failures.append("\n  slowest record took ").append(report.getMaxNanos() / 1000).append("us");
+		}
+		if (failures.length() > 0) {
+			System.err.println("failed: " + name + failures);
+			return false;
+		}
+		System.out.println("ok: " + name + ", " + report);
+		return true;
+	}
+
+	// Replays the trace and returns the report once the animations it
+	// started are done, or null if the file is not a trace.
+	private TouchTraceReplayer.Report replay(File file) {
+		TouchTraceReplayer replayer = new TouchTraceReplayer();
+		if (!replayer.load(file)) return null;
+		mReport = null;
+		replayer.replay(mView, new TouchTraceReplayer.OnReplayFinishedListener() {
+			@Override
+			public void onReplayFinished(TouchTraceReplayer.Report report) {
+				mReport = report;
+			}
+		});
+		while (mReport == null) {
+			runFor(MessageQueue.FRAME_MS);
+		}
+		runFor(SETTLE_MS);
+		return mReport;
+	}
+
+	private static void runFor(long millis) {
+		Looper.myQueue().runUntil(SystemClock.uptimeMillis() + millis);
+	}
+
+	private static int[] identity(int count) {
+		int[] order = new int[count];
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+		}
+		return order;
+	}
+
+	private static int[] move(int[] order, int fromPos, int toPos) {
+		PositionModel.moveInArray(order, fromPos, toPos);
+		return order;
+	}
+
+	private static int[] parseOrder(String ids) {
+		String[] parts = ids.split(",");
+		int[] order = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			order[i] = Integer.parseInt(parts[i].trim());
+		}
+		return order;
+	}
+
+	// Builds records in the layout TouchTraceRecorder writes.
+	private static class TraceBuilder {
+		private int[] mData = new int[256];
+		private int mLength = 0;
+		private int mRecordCount = 0;
+
+		TraceBuilder down(int time, int x, int y) {
+			return event(MotionEvent.ACTION_DOWN, time, x, y);
+		}
+
+		// Historical samples are given as x, y pairs, oldest first, spread
+		// evenly over the 16 ms before the event.
+		TraceBuilder move(int time, int x, int y, int... history) {
+			return event(MotionEvent.ACTION_MOVE, time, x, y, history);
+		}
+
+		TraceBuilder up(int time, int x, int y) {
+			return event(MotionEvent.ACTION_UP, time, x, y);
+		}
+
+		TraceBuilder cancel(int time, int x, int y) {
+			return event(MotionEvent.ACTION_CANCEL, time, x, y);
+		}
+
+		TraceBuilder longClick(int time) {
+			mData[mLength++] = TouchTrace.LONG_CLICK;
+			mData[mLength++] = time;
+			mRecordCount++;
+			return this;
+		}
+
+		byte[] encode() {
+			return TouchTrace.encode(mData, mLength, mRecordCount);
+		}
+
+		private TraceBuilder event(int action, int time, int x, int y, int... history) {
+			int historySize = history.length / 2;
+			mData[mLength++] = action;
+			mData[mLength++] = time;
+			mData[mLength++] = Float.floatToIntBits(x);
+			mData[mLength++] = Float.floatToIntBits(y);
+			mData[mLength++] = historySize;
+			for (int h = 0; h < historySize; h++) {
+				mData[mLength++] = time - 16 + 16 * h / historySize;
+				mData[mLength++] = Float.floatToIntBits(history[2 * h]);
+				mData[mLength++] = Float.floatToIntBits(history[2 * h + 1]);
+			}
+			mRecordCount++;
+			return this;
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package android.content;
+
+import android.view.Display;
+import android.view.WindowManager;
+
+/**
+ * Context of a window of the given size, only the window service is there.
+ */
+public class Context {
+
+	public static final String WINDOW_SERVICE = "window";
+
+	private final WindowManager mWindowManager;
+
+	public Context(int displayWidth, int displayHeight) {
+		mWindowManager = new WindowManager(new Display(displayWidth, displayHeight));
+	}
+
+	public Object getSystemService(String name) {
+		return WINDOW_SERVICE.equals(name) ? mWindowManager : null;
+	}
+}
@@ -0,0 +1,10 @@
+package android.database;
+
+public abstract class DataSetObserver {
+
+	public void onChanged() {
+	}
+
+	public void onInvalidated() {
+	}
+}
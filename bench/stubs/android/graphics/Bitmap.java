@@ -0,0 +1,37 @@
+package android.graphics;
+
+/**
+ * Only the size, there are no pixels.
+ */
+public final class Bitmap {
+
+	public enum Config {
+		ARGB_8888
+	}
+
+	private final int mWidth;
+	private final int mHeight;
+
+	private Bitmap(int width, int height) {
+		mWidth = width;
+		mHeight = height;
+	}
+
+	public static Bitmap createBitmap(int width, int height, Config config) {
+		return new Bitmap(width, height);
+	}
+
+	public int getWidth() {
+		return mWidth;
+	}
+
+	public int getHeight() {
+		return mHeight;
+	}
+
+	public void eraseColor(int color) {
+	}
+
+	public void recycle() {
+	}
+}
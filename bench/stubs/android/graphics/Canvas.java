@@ -0,0 +1,29 @@
+package android.graphics;
+
+/**
+ * Nothing is drawn, every call is ignored.
+ */
+public class Canvas {
+
+	public void setBitmap(Bitmap bitmap) {
+	}
+
+	public int save() {
+		return 1;
+	}
+
+	public void restore() {
+	}
+
+	public void translate(float dx, float dy) {
+	}
+
+	public void scale(float sx, float sy, float px, float py) {
+	}
+
+	public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+	}
+
+	public void drawRect(Rect rect, Paint paint) {
+	}
+}
@@ -0,0 +1,21 @@
+package android.graphics;
+
+/**
+ * Nothing is drawn, keeps nothing.
+ */
+public class Paint {
+
+	public static final int FILTER_BITMAP_FLAG = 2;
+
+	public Paint() {
+	}
+
+	public Paint(int flags) {
+	}
+
+	public void setColor(int color) {
+	}
+
+	public void setAlpha(int alpha) {
+	}
+}
@@ -0,0 +1,20 @@
+package android.graphics;
+
+public final class Rect {
+
+	public int left, top, right, bottom;
+
+	public void set(int left, int top, int right, int bottom) {
+		this.left = left;
+		this.top = top;
+		this.right = right;
+		this.bottom = bottom;
+	}
+
+	public void offset(int dx, int dy) {
+		left += dx;
+		right += dx;
+		top += dy;
+		bottom += dy;
+	}
+}
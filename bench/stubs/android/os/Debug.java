@@ -0,0 +1,51 @@
+package android.os;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Allocation counters backed by the HotSpot thread allocation counter.
+ * The JVM does not count objects, so getThreadAllocCount() returns bytes
+ * as well. Reading the counter allocates, that is taken out again so
+ * the difference between two reads is what ran in between. Both return
+ * -1 on a JVM without the counter.
+ */
+public class Debug {
+
+	private static final com.sun.management.ThreadMXBean sBean = getBean();
+	private static final long sReadOverhead = measureReadOverhead();
+	private static long sReads = 0;
+
+	public static void startAllocCounting() {
+	}
+
+	public static void stopAllocCounting() {
+	}
+
+	public static int getThreadAllocCount() {
+		return (int) allocatedBytes();
+	}
+
+	public static int getThreadAllocSize() {
+		return (int) allocatedBytes();
+	}
+
+	private static long allocatedBytes() {
+		if (sBean == null) return -1;
+		long bytes = sBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - sReads * sReadOverhead;
+		sReads++;
+		return bytes;
+	}
+
+	private static com.sun.management.ThreadMXBean getBean() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		return bean instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) bean : null;
+	}
+
+	private static long measureReadOverhead() {
+		if (sBean == null) return 0;
+		long id = Thread.currentThread().getId();
+		sBean.getThreadAllocatedBytes(id);
+		long first = sBean.getThreadAllocatedBytes(id);
+		return sBean.getThreadAllocatedBytes(id) - first;
+	}
+}
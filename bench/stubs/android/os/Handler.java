@@ -0,0 +1,34 @@
+package android.os;
+
+/**
+ * Posts to the queue of the main Looper stand-in.
+ */
+public class Handler {
+
+	private final MessageQueue mQueue;
+
+	public Handler() {
+		this(Looper.myLooper());
+	}
+
+	public Handler(Looper looper) {
+		mQueue = looper.getQueue();
+	}
+
+	public final boolean post(Runnable r) {
+		return postAtTime(r, SystemClock.uptimeMillis());
+	}
+
+	public final boolean postDelayed(Runnable r, long delayMillis) {
+		return postAtTime(r, SystemClock.uptimeMillis() + delayMillis);
+	}
+
+	public final boolean postAtTime(Runnable r, long uptimeMillis) {
+		mQueue.enqueue(r, uptimeMillis);
+		return true;
+	}
+
+	public final void removeCallbacks(Runnable r) {
+		mQueue.remove(r);
+	}
+}
@@ -0,0 +1,19 @@
+package android.os;
+
+/**
+ * Only here so CellFactory compiles, the checks never start one.
+ */
+public class HandlerThread extends Thread {
+
+	public HandlerThread(String name, int priority) {
+		super(name);
+	}
+
+	public Looper getLooper() {
+		throw new UnsupportedOperationException("no background loopers on the JVM");
+	}
+
+	public boolean quit() {
+		return true;
+	}
+}
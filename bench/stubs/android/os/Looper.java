@@ -0,0 +1,30 @@
+package android.os;
+
+/**
+ * The main thread, which is the only one. See MessageQueue.
+ */
+public final class Looper {
+
+	private static final Looper sMainLooper = new Looper();
+
+	private final MessageQueue mQueue = new MessageQueue();
+
+	private Looper() {
+	}
+
+	public static Looper getMainLooper() {
+		return sMainLooper;
+	}
+
+	public static Looper myLooper() {
+		return sMainLooper;
+	}
+
+	public static MessageQueue myQueue() {
+		return sMainLooper.mQueue;
+	}
+
+	public MessageQueue getQueue() {
+		return mQueue;
+	}
+}
@@ -0,0 +1,105 @@
+package android.os;
+
+/**
+ * Main thread queue run by hand instead of by a looping thread. Handler,
+ * View.post() and ViewCompat.postOnAnimation() queue here, runUntil()
+ * runs everything due in time order and moves SystemClock along, so a
+ * check decides how far time goes. Frame callbacks run on the next
+ * FRAME_MS vsync. Idle handlers are kept but never run.
+ *
+ * Queueing only allocates when the queue outgrows its arrays, so the
+ * stand-ins add nothing to the allocations a check measures.
+ */
+public final class MessageQueue {
+
+	/**
+	 * Same as the framework's, see the class comment.
+	 */
+	public interface IdleHandler {
+		boolean queueIdle();
+	}
+
+	public static final int FRAME_MS = 16;
+
+	private Runnable[] mActions = new Runnable[64];
+	private long[] mTimes = new long[64];	// Sorted, messages for the same time in the order queued.
+	private int mCount = 0;
+
+	MessageQueue() {
+	}
+
+	public void addIdleHandler(IdleHandler handler) {
+	}
+
+	public void removeIdleHandler(IdleHandler handler) {
+	}
+
+	/**
+	 * Queues the action to run at the given uptime.
+	 */
+	public void enqueue(Runnable action, long uptimeMillis) {
+		if (mCount == mActions.length) {
+			Runnable[] actions = new Runnable[mCount * 2];
+			System.arraycopy(mActions, 0, actions, 0, mCount);
+			mActions = actions;
+			long[] times = new long[mCount * 2];
+			System.arraycopy(mTimes, 0, times, 0, mCount);
+			mTimes = times;
+		}
+		int i = mCount;
+		while (i > 0 && mTimes[i - 1] > uptimeMillis) {
+			mActions[i] = mActions[i - 1];
+			mTimes[i] = mTimes[i - 1];
+			i--;
+		}
+		mActions[i] = action;
+		mTimes[i] = uptimeMillis;
+		mCount++;
+	}
+
+	/**
+	 * Queues the action for the next vsync.
+	 */
+	public void enqueueFrame(Runnable action) {
+		enqueue(action, (SystemClock.uptimeMillis() / FRAME_MS + 1) * FRAME_MS);
+	}
+
+	/**
+	 * Drops every queued run of the action.
+	 */
+	public void remove(Runnable action) {
+		int k = 0;
+		for (int i = 0; i < mCount; i++) {
+			if (mActions[i] == action) continue;
+			mActions[k] = mActions[i];
+			mTimes[k] = mTimes[i];
+			k++;
+		}
+		for (int i = k; i < mCount; i++) {
+			mActions[i] = null;
+		}
+		mCount = k;
+	}
+
+	/**
+	 * Runs every message due up to the given uptime, including those
+	 * queued while running, and leaves the clock there.
+	 */
+	public void runUntil(long uptimeMillis) {
+		while (mCount > 0 && mTimes[0] <= uptimeMillis) {
+			Runnable action = mActions[0];
+			long time = mTimes[0];
+			mCount--;
+			System.arraycopy(mActions, 1, mActions, 0, mCount);
+			System.arraycopy(mTimes, 1, mTimes, 0, mCount);
+			mActions[mCount] = null;
+			if (time > SystemClock.uptimeMillis()) SystemClock.setUptimeMillis(time);
+			action.run();
+		}
+		if (uptimeMillis > SystemClock.uptimeMillis()) SystemClock.setUptimeMillis(uptimeMillis);
+	}
+
+	public boolean isEmpty() {
+		return mCount == 0;
+	}
+}
@@ -0,0 +1,12 @@
+package android.os;
+
+/**
+ * Thread priorities are left to the JVM.
+ */
+public class Process {
+
+	public static final int THREAD_PRIORITY_BACKGROUND = 10;
+
+	public static void setThreadPriority(int priority) {
+	}
+}
@@ -0,0 +1,19 @@
+package android.os;
+
+/**
+ * Uptime clock moved by the MessageQueue stand-in as it runs messages,
+ * never by the wall clock.
+ */
+public final class SystemClock {
+
+	private static long sUptime = 0;
+
+	public static long uptimeMillis() {
+		return sUptime;
+	}
+
+	// Not in the framework, only the stand-ins move the clock.
+	static void setUptimeMillis(long uptime) {
+		sUptime = uptime;
+	}
+}
@@ -0,0 +1,14 @@
+package android.support.v4.view;
+
+import android.os.Looper;
+import android.view.View;
+
+/**
+ * Frame callbacks run on the next vsync of the main Looper stand-in.
+ */
+public class ViewCompat {
+
+	public static void postOnAnimation(View view, Runnable action) {
+		Looper.myQueue().enqueueFrame(action);
+	}
+}
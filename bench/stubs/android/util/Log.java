@@ -0,0 +1,27 @@
+package android.util;
+
+/**
+ * Drops everything, the checks print their own results.
+ */
+public final class Log {
+
+	public static int i(String tag, String msg) {
+		return 0;
+	}
+
+	public static int w(String tag, String msg) {
+		return 0;
+	}
+
+	public static int w(String tag, String msg, Throwable tr) {
+		return 0;
+	}
+
+	public static int e(String tag, String msg) {
+		return 0;
+	}
+
+	public static int e(String tag, String msg, Throwable tr) {
+		return 0;
+	}
+}
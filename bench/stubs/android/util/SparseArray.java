@@ -0,0 +1,104 @@
+package android.util;
+
+/**
+ * Same behaviour as the framework's: keys sorted, found by binary search.
+ */
+public class SparseArray<E> {
+
+	private int[] mKeys;
+	private Object[] mValues;
+	private int mSize = 0;
+
+	public SparseArray() {
+		this(10);
+	}
+
+	public SparseArray(int initialCapacity) {
+		mKeys = new int[Math.max(1, initialCapacity)];
+		mValues = new Object[mKeys.length];
+	}
+
+	public E get(int key) {
+		return get(key, null);
+	}
+
+	@SuppressWarnings("unchecked")
+	public E get(int key, E valueIfKeyNotFound) {
+		int i = indexOfKey(key);
+		return i >= 0 ? (E) mValues[i] : valueIfKeyNotFound;
+	}
+
+	public void put(int key, E value) {
+		int i = indexOfKey(key);
+		if (i >= 0) {
+			mValues[i] = value;
+			return;
+		}
+		i = ~i;
+		if (mSize == mKeys.length) {
+			int[] keys = new int[mSize * 2];
+			System.arraycopy(mKeys, 0, keys, 0, mSize);
+			mKeys = keys;
+			Object[] values = new Object[mSize * 2];
+			System.arraycopy(mValues, 0, values, 0, mSize);
+			mValues = values;
+		}
+		System.arraycopy(mKeys, i, mKeys, i + 1, mSize - i);
+		System.arraycopy(mValues, i, mValues, i + 1, mSize - i);
+		mKeys[i] = key;
+		mValues[i] = value;
+		mSize++;
+	}
+
+	public void delete(int key) {
+		int i = indexOfKey(key);
+		if (i >= 0) removeAt(i);
+	}
+
+	public void remove(int key) {
+		delete(key);
+	}
+
+	public void removeAt(int index) {
+		System.arraycopy(mKeys, index + 1, mKeys, index, mSize - index - 1);
+		System.arraycopy(mValues, index + 1, mValues, index, mSize - index - 1);
+		mSize--;
+		mValues[mSize] = null;
+	}
+
+	public int size() {
+		return mSize;
+	}
+
+	public int keyAt(int index) {
+		return mKeys[index];
+	}
+
+	@SuppressWarnings("unchecked")
+	public E valueAt(int index) {
+		return (E) mValues[index];
+	}
+
+	public int indexOfKey(int key) {
+		int lo = 0;
+		int hi = mSize - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (mKeys[mid] < key) {
+				lo = mid + 1;
+			} else if (mKeys[mid] > key) {
+				hi = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return ~lo;
+	}
+
+	public void clear() {
+		for (int i = 0; i < mSize; i++) {
+			mValues[i] = null;
+		}
+		mSize = 0;
+	}
+}
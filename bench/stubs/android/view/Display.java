@@ -0,0 +1,20 @@
+package android.view;
+
+public class Display {
+
+	private final int mWidth;
+	private final int mHeight;
+
+	public Display(int width, int height) {
+		mWidth = width;
+		mHeight = height;
+	}
+
+	public int getWidth() {
+		return mWidth;
+	}
+
+	public int getHeight() {
+		return mHeight;
+	}
+}
@@ -0,0 +1,22 @@
+package android.view;
+
+import android.content.Context;
+
+/**
+ * Only here so CellFactory compiles, there are no layout resources to
+ * inflate on the JVM.
+ */
+public class LayoutInflater {
+
+	public static LayoutInflater from(Context context) {
+		return new LayoutInflater();
+	}
+
+	public LayoutInflater cloneInContext(Context context) {
+		return new LayoutInflater();
+	}
+
+	public View inflate(int resource, ViewGroup root) {
+		throw new UnsupportedOperationException("no layout resources on the JVM");
+	}
+}
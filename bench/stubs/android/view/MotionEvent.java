@@ -0,0 +1,103 @@
+package android.view;
+
+/**
+ * Single pointer events with batched history. Recycled events are reused
+ * by obtain() the way the framework pools them, so replaying allocates
+ * no events once the history arrays are big enough.
+ */
+public final class MotionEvent {
+
+	public static final int ACTION_DOWN = 0;
+	public static final int ACTION_UP = 1;
+	public static final int ACTION_MOVE = 2;
+	public static final int ACTION_CANCEL = 3;
+	public static final int ACTION_MASK = 0xff;
+
+	private static MotionEvent sRecycled;
+
+	private long mDownTime;
+	private int mAction;
+	private int mSampleCount;		// Historical samples plus the current one, which is last.
+	private long[] mTimes = new long[8];
+	private float[] mXs = new float[8];
+	private float[] mYs = new float[8];
+
+	private MotionEvent() {
+	}
+
+	public static MotionEvent obtain(long downTime, long eventTime, int action, float x, float y, int metaState) {
+		MotionEvent event = sRecycled;
+		if (event != null) {
+			sRecycled = null;
+		} else {
+			event = new MotionEvent();
+		}
+		event.mDownTime = downTime;
+		event.mAction = action;
+		event.mSampleCount = 0;
+		event.addBatch(eventTime, x, y, 1f, 1f, metaState);
+		return event;
+	}
+
+	public void addBatch(long eventTime, float x, float y, float pressure, float size, int metaState) {
+		if (mSampleCount == mTimes.length) {
+			long[] times = new long[mSampleCount * 2];
+			System.arraycopy(mTimes, 0, times, 0, mSampleCount);
+			mTimes = times;
+			float[] xs = new float[mSampleCount * 2];
+			System.arraycopy(mXs, 0, xs, 0, mSampleCount);
+			mXs = xs;
+			float[] ys = new float[mSampleCount * 2];
+			System.arraycopy(mYs, 0, ys, 0, mSampleCount);
+			mYs = ys;
+		}
+		mTimes[mSampleCount] = eventTime;
+		mXs[mSampleCount] = x;
+		mYs[mSampleCount] = y;
+		mSampleCount++;
+	}
+
+	public void recycle() {
+		sRecycled = this;
+	}
+
+	public int getAction() {
+		return mAction;
+	}
+
+	public int getActionMasked() {
+		return mAction & ACTION_MASK;
+	}
+
+	public long getDownTime() {
+		return mDownTime;
+	}
+
+	public long getEventTime() {
+		return mTimes[mSampleCount - 1];
+	}
+
+	public float getX() {
+		return mXs[mSampleCount - 1];
+	}
+
+	public float getY() {
+		return mYs[mSampleCount - 1];
+	}
+
+	public int getHistorySize() {
+		return mSampleCount - 1;
+	}
+
+	public long getHistoricalEventTime(int pos) {
+		return mTimes[pos];
+	}
+
+	public float getHistoricalX(int pos) {
+		return mXs[pos];
+	}
+
+	public float getHistoricalY(int pos) {
+		return mYs[pos];
+	}
+}
@@ -0,0 +1,316 @@
+package android.view;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Looper;
+import android.util.AttributeSet;
+
+/**
+ * Stand-in for the framework View, enough for DraggableView and its
+ * cells to run on a plain JVM: bounds, measuring, visibility, scrolling,
+ * the click listeners and posting to the queue of the main Looper
+ * stand-in. Nothing is ever drawn.
+ *
+ * A view without a parent that has been measured is the root of its
+ * window, requestLayout() on it or on anything below it measures and
+ * lays it out again on the next frame, like a traversal. Touches only
+ * reach onTouchEvent(), there is no long press timer and no click is
+ * made from an up, callers use performLongClick() and performClick().
+ */
+public class View {
+
+	public static final int VISIBLE = 0;
+	public static final int INVISIBLE = 4;
+	public static final int GONE = 8;
+
+	public static class MeasureSpec {
+		public static final int UNSPECIFIED = 0;
+		public static final int EXACTLY = 1 << 30;
+		public static final int AT_MOST = 2 << 30;
+		private static final int MODE_MASK = 3 << 30;
+
+		public static int makeMeasureSpec(int size, int mode) {
+			return (size & ~MODE_MASK) | (mode & MODE_MASK);
+		}
+
+		public static int getMode(int measureSpec) {
+			return measureSpec & MODE_MASK;
+		}
+
+		public static int getSize(int measureSpec) {
+			return measureSpec & ~MODE_MASK;
+		}
+	}
+
+	public interface OnClickListener {
+		void onClick(View v);
+	}
+
+	public interface OnLongClickListener {
+		boolean onLongClick(View v);
+	}
+
+	private final Context mContext;
+	ViewParent mParent;
+	ViewGroup.LayoutParams mLayoutParams;
+	private int mId = -1;
+	private int mLeft, mTop, mRight, mBottom;
+	private int mMeasuredWidth, mMeasuredHeight;
+	private int mWidthMeasureSpec, mHeightMeasureSpec;
+	private boolean mMeasured = false;
+	private boolean mLayoutRequested = true;
+	private int mScrollX, mScrollY;
+	private int mVisibility = VISIBLE;
+	private OnClickListener mOnClickListener;
+	private OnLongClickListener mOnLongClickListener;
+
+	private boolean mTraversalScheduled = false;
+	private final Runnable mTraversal = new Runnable() {
+		@Override
+		public void run() {
+			mTraversalScheduled = false;
+			measure(mWidthMeasureSpec, mHeightMeasureSpec);
+			layout(mLeft, mTop, mLeft + mMeasuredWidth, mTop + mMeasuredHeight);
+		}
+	};
+
+	public View(Context context) {
+		mContext = context;
+	}
+
+	public View(Context context, AttributeSet attrs) {
+		mContext = context;
+	}
+
+	public final Context getContext() {
+		return mContext;
+	}
+
+	public final ViewParent getParent() {
+		return mParent;
+	}
+
+	public int getId() {
+		return mId;
+	}
+
+	public void setId(int id) {
+		mId = id;
+	}
+
+	public final View findViewById(int id) {
+		return id == mId ? this : null;
+	}
+
+	public ViewGroup.LayoutParams getLayoutParams() {
+		return mLayoutParams;
+	}
+
+	public void setLayoutParams(ViewGroup.LayoutParams params) {
+		mLayoutParams = params;
+		requestLayout();
+	}
+
+	// Measuring and layout.
+
+	public final void measure(int widthMeasureSpec, int heightMeasureSpec) {
+		mWidthMeasureSpec = widthMeasureSpec;
+		mHeightMeasureSpec = heightMeasureSpec;
+		mMeasured = true;
+		onMeasure(widthMeasureSpec, heightMeasureSpec);
+	}
+
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		setMeasuredDimension(getDefaultSize(0, widthMeasureSpec), getDefaultSize(0, heightMeasureSpec));
+	}
+
+	public static int getDefaultSize(int size, int measureSpec) {
+		return MeasureSpec.getMode(measureSpec) == MeasureSpec.UNSPECIFIED ? size : MeasureSpec.getSize(measureSpec);
+	}
+
+	protected final void setMeasuredDimension(int measuredWidth, int measuredHeight) {
+		mMeasuredWidth = measuredWidth;
+		mMeasuredHeight = measuredHeight;
+	}
+
+	public final int getMeasuredWidth() {
+		return mMeasuredWidth;
+	}
+
+	public final int getMeasuredHeight() {
+		return mMeasuredHeight;
+	}
+
+	public void layout(int l, int t, int r, int b) {
+		boolean changed = l != mLeft || t != mTop || r != mRight || b != mBottom;
+		mLeft = l;
+		mTop = t;
+		mRight = r;
+		mBottom = b;
+		mLayoutRequested = false;
+		onLayout(changed, l, t, r, b);
+	}
+
+	protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+	}
+
+	public void requestLayout() {
+		mLayoutRequested = true;
+		if (mParent != null) {
+			mParent.requestLayout();
+		} else if (mMeasured && !mTraversalScheduled) {
+			mTraversalScheduled = true;
+			Looper.myQueue().enqueueFrame(mTraversal);
+		}
+	}
+
+	public void forceLayout() {
+		mLayoutRequested = true;
+	}
+
+	public boolean isLayoutRequested() {
+		return mLayoutRequested;
+	}
+
+	// Bounds.
+
+	public final int getLeft() {
+		return mLeft;
+	}
+
+	public final int getTop() {
+		return mTop;
+	}
+
+	public final int getRight() {
+		return mRight;
+	}
+
+	public final int getBottom() {
+		return mBottom;
+	}
+
+	public final int getWidth() {
+		return mRight - mLeft;
+	}
+
+	public final int getHeight() {
+		return mBottom - mTop;
+	}
+
+	public void offsetLeftAndRight(int offset) {
+		mLeft += offset;
+		mRight += offset;
+	}
+
+	public void offsetTopAndBottom(int offset) {
+		mTop += offset;
+		mBottom += offset;
+	}
+
+	// Scrolling.
+
+	public final int getScrollX() {
+		return mScrollX;
+	}
+
+	public final int getScrollY() {
+		return mScrollY;
+	}
+
+	public void scrollTo(int x, int y) {
+		if (x == mScrollX && y == mScrollY) return;
+		int oldX = mScrollX;
+		int oldY = mScrollY;
+		mScrollX = x;
+		mScrollY = y;
+		onScrollChanged(x, y, oldX, oldY);
+	}
+
+	public void scrollBy(int x, int y) {
+		scrollTo(mScrollX + x, mScrollY + y);
+	}
+
+	protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+	}
+
+	// Drawing, nothing is drawn.
+
+	public int getVisibility() {
+		return mVisibility;
+	}
+
+	public void setVisibility(int visibility) {
+		mVisibility = visibility;
+	}
+
+	public void invalidate() {
+	}
+
+	public void invalidate(Rect dirty) {
+	}
+
+	public void invalidate(int l, int t, int r, int b) {
+	}
+
+	public void setWillNotDraw(boolean willNotDraw) {
+	}
+
+	public void draw(Canvas canvas) {
+	}
+
+	protected void onDraw(Canvas canvas) {
+	}
+
+	protected void dispatchDraw(Canvas canvas) {
+	}
+
+	// Touches and clicks.
+
+	public void setOnClickListener(OnClickListener listener) {
+		mOnClickListener = listener;
+	}
+
+	public void setOnLongClickListener(OnLongClickListener listener) {
+		mOnLongClickListener = listener;
+	}
+
+	public boolean performClick() {
+		if (mOnClickListener == null) return false;
+		mOnClickListener.onClick(this);
+		return true;
+	}
+
+	public boolean performLongClick() {
+		return mOnLongClickListener != null && mOnLongClickListener.onLongClick(this);
+	}
+
+	public void cancelLongPress() {
+	}
+
+	public boolean dispatchTouchEvent(MotionEvent event) {
+		return onTouchEvent(event);
+	}
+
+	public boolean onTouchEvent(MotionEvent event) {
+		return mOnClickListener != null || mOnLongClickListener != null;
+	}
+
+	// Posting.
+
+	public boolean post(Runnable action) {
+		Looper.myQueue().enqueue(action, android.os.SystemClock.uptimeMillis());
+		return true;
+	}
+
+	public boolean postDelayed(Runnable action, long delayMillis) {
+		Looper.myQueue().enqueue(action, android.os.SystemClock.uptimeMillis() + delayMillis);
+		return true;
+	}
+
+	public boolean removeCallbacks(Runnable action) {
+		Looper.myQueue().remove(action);
+		return true;
+	}
+}
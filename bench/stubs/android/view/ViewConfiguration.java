@@ -0,0 +1,19 @@
+package android.view;
+
+import android.content.Context;
+
+/**
+ * Framework defaults at mdpi.
+ */
+public class ViewConfiguration {
+
+	private static final ViewConfiguration sInstance = new ViewConfiguration();
+
+	public static ViewConfiguration get(Context context) {
+		return sInstance;
+	}
+
+	public int getScaledTouchSlop() {
+		return 16;
+	}
+}
@@ -0,0 +1,128 @@
+package android.view;
+
+import java.util.ArrayList;
+
+import android.content.Context;
+import android.util.AttributeSet;
+
+/**
+ * Keeps its children in drawing order. See View for what is left out,
+ * touches are not passed on to children either.
+ */
+public abstract class ViewGroup extends View implements ViewParent {
+
+	public static class LayoutParams {
+		public static final int FILL_PARENT = -1;
+		public static final int MATCH_PARENT = -1;
+		public static final int WRAP_CONTENT = -2;
+
+		public int width;
+		public int height;
+
+		public LayoutParams(int width, int height) {
+			this.width = width;
+			this.height = height;
+		}
+	}
+
+	public static class MarginLayoutParams extends LayoutParams {
+		public MarginLayoutParams(int width, int height) {
+			super(width, height);
+		}
+	}
+
+	private final ArrayList<View> mChildren = new ArrayList<View>();
+
+	public ViewGroup(Context context) {
+		super(context);
+	}
+
+	public ViewGroup(Context context, AttributeSet attrs) {
+		super(context, attrs);
+	}
+
+	@Override
+	protected abstract void onLayout(boolean changed, int l, int t, int r, int b);
+
+	public int getChildCount() {
+		return mChildren.size();
+	}
+
+	public View getChildAt(int index) {
+		return index >= 0 && index < mChildren.size() ? mChildren.get(index) : null;
+	}
+
+	public int indexOfChild(View child) {
+		return mChildren.indexOf(child);
+	}
+
+	public void addView(View child) {
+		addView(child, -1, child.getLayoutParams() != null ? child.getLayoutParams() : generateDefaultLayoutParams());
+	}
+
+	public void addView(View child, LayoutParams params) {
+		addView(child, -1, params);
+	}
+
+	public void addView(View child, int index, LayoutParams params) {
+		addViewInLayout(child, index, params, false);
+		requestLayout();
+	}
+
+	protected boolean addViewInLayout(View child, int index, LayoutParams params) {
+		return addViewInLayout(child, index, params, false);
+	}
+
+	protected boolean addViewInLayout(View child, int index, LayoutParams params, boolean preventRequestLayout) {
+		if (child.mParent != null) throw new IllegalStateException("The specified child already has a parent.");
+		attachViewToParent(child, index, params);
+		return true;
+	}
+
+	protected void attachViewToParent(View child, int index, LayoutParams params) {
+		child.mLayoutParams = params;
+		child.mParent = this;
+		if (index < 0) {
+			mChildren.add(child);
+		} else {
+			mChildren.add(index, child);
+		}
+	}
+
+	protected void detachViewFromParent(View child) {
+		if (mChildren.remove(child)) child.mParent = null;
+	}
+
+	protected void removeDetachedView(View child, boolean animate) {
+		child.mParent = null;
+	}
+
+	public void removeView(View child) {
+		removeViewInLayout(child);
+		requestLayout();
+	}
+
+	public void removeViewInLayout(View child) {
+		detachViewFromParent(child);
+	}
+
+	public void removeAllViewsInLayout() {
+		for (int i = 0; i < mChildren.size(); i++) {
+			mChildren.get(i).mParent = null;
+		}
+		mChildren.clear();
+	}
+
+	protected LayoutParams generateDefaultLayoutParams() {
+		return new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+	}
+
+	public boolean onInterceptTouchEvent(MotionEvent event) {
+		return false;
+	}
+
+	@Override
+	public void requestDisallowInterceptTouchEvent(boolean disallowIntercept) {
+		if (getParent() != null) getParent().requestDisallowInterceptTouchEvent(disallowIntercept);
+	}
+}
@@ -0,0 +1,7 @@
+package android.view;
+
+public interface ViewParent {
+	void requestLayout();
+	void requestDisallowInterceptTouchEvent(boolean disallowIntercept);
+	ViewParent getParent();
+}
@@ -0,0 +1,17 @@
+package android.view;
+
+/**
+ * Holds the display of a Context stand-in.
+ */
+public class WindowManager {
+
+	private final Display mDisplay;
+
+	public WindowManager(Display display) {
+		mDisplay = display;
+	}
+
+	public Display getDefaultDisplay() {
+		return mDisplay;
+	}
+}
@@ -0,0 +1,13 @@
+package android.view.animation;
+
+import android.os.SystemClock;
+
+/**
+ * Animation time is uptime, as on the device.
+ */
+public class AnimationUtils {
+
+	public static long currentAnimationTimeMillis() {
+		return SystemClock.uptimeMillis();
+	}
+}
@@ -0,0 +1,5 @@
+package android.view.animation;
+
+public interface Interpolator {
+	float getInterpolation(float input);
+}
@@ -0,0 +1,24 @@
+package android.widget;
+
+import android.content.Context;
+import android.view.ViewGroup;
+
+/**
+ * Only here so CellFactory compiles, children are never laid out.
+ */
+public class LinearLayout extends ViewGroup {
+
+	public static class LayoutParams extends ViewGroup.MarginLayoutParams {
+		public LayoutParams(int width, int height) {
+			super(width, height);
+		}
+	}
+
+	public LinearLayout(Context context) {
+		super(context);
+	}
+
+	@Override
+	protected void onLayout(boolean changed, int l, int t, int r, int b) {
+	}
+}
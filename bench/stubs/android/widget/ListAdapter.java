@@ -0,0 +1,17 @@
+package android.widget;
+
+import android.database.DataSetObserver;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * The part of the framework's ListAdapter DraggableView uses.
+ */
+public interface ListAdapter {
+	int getCount();
+	int getItemViewType(int position);
+	int getViewTypeCount();
+	View getView(int position, View convertView, ViewGroup parent);
+	void registerDataSetObserver(DataSetObserver observer);
+	void unregisterDataSetObserver(DataSetObserver observer);
+}
@@ -0,0 +1,21 @@
+package android.widget;
+
+import android.content.Context;
+import android.view.View;
+
+public class TextView extends View {
+
+	private CharSequence mText = "";
+
+	public TextView(Context context) {
+		super(context);
+	}
+
+	public CharSequence getText() {
+		return mText;
+	}
+
+	public void setText(CharSequence text) {
+		mText = text;
+	}
+}
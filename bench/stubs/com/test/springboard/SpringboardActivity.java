@@ -0,0 +1,10 @@
+package com.test.springboard;
+
+/**
+ * Stands in for the activity, which the checks do not run. Only its log
+ * tag is used by the classes they do.
+ */
+public class SpringboardActivity {
+
+	public static final String LOGTAG = "Springboard";
+}
@@ -18,7 +18,12 @@ public final class R {
     public static final class id {
         public static final int LinearLayout1=0x7f070000;
         public static final int ivIcon=0x7f070001;
+        public static final int menu_record_trace=0x7f07000a;
+        public static final int menu_redo=0x7f070009;
+        public static final int menu_replay_trace=0x7f07000b;
+        public static final int menu_select=0x7f070007;
         public static final int menu_settings=0x7f070006;
+        public static final int menu_undo=0x7f070008;
         public static final int sb_RlFullGrid=0x7f070004;
         public static final int sb_RlRoot=0x7f070003;
         public static final int sb_RlTabBar=0x7f070005;
@@ -27,6 +32,7 @@ public final class R {
     public static final class layout {
         public static final int one_item=0x7f030000;
         public static final int springboard=0x7f030001;
+        public static final int springboard_page=0x7f030002;
     }
     public static final class menu {
         public static final int springboard=0x7f060000;
@@ -34,7 +40,12 @@ public final class R {
     public static final class string {
         public static final int app_name=0x7f040000;
         public static final int hello_world=0x7f040001;
+        public static final int menu_record_trace=0x7f040007;
+        public static final int menu_redo=0x7f040006;
+        public static final int menu_replay_trace=0x7f040008;
+        public static final int menu_select=0x7f040004;
         public static final int menu_settings=0x7f040002;
+        public static final int menu_undo=0x7f040005;
         public static final int title_activity_springboard=0x7f040003;
     }
     public static final class style {
@@ -0,0 +1,144 @@
+package com.test.springboard;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.util.LruCache;
+import android.widget.ImageView;
+
+/**
+ * Request bookkeeping shared by IconCache and FolderPreviewCache. Bitmaps
+ * are produced on one background thread and kept in an LRU with a byte
+ * budget. Views asking for a bitmap that is still being produced wait for
+ * it together, and a view only gets the bitmap it asked for last, since a
+ * recycled cell may have been rebound to something else in the meantime.
+ *
+ * All methods except get() and put() must be called on the UI thread.
+ */
+class AsyncBitmapCache {
+
+	/**
+	 * Makes the bitmap for a key, runs on the background thread.
+	 */
+	interface Producer {
+		/**
+		 * @return the bitmap, or null if it cannot be made
+		 */
+		Bitmap produce();
+	}
+
+	private final LruCache<Long, Bitmap> mCache;
+	private final Handler mHandler;
+	private final ExecutorService mExecutor;
+
+	// Bitmaps in flight, with the views waiting for each of them.
+	private final HashMap<Long, ArrayList<ImageView>> mPending = new HashMap<Long, ArrayList<ImageView>>();
+	// Key each view asked for last.
+	private final WeakHashMap<ImageView, Long> mRequested = new WeakHashMap<ImageView, Long>();
+
+	/**
+	 * @param name - name of the background thread
+	 * @param maxBytes - byte budget of the cached bitmaps
+	 */
+	AsyncBitmapCache(String name, int maxBytes) {
+		mHandler = new Handler(Looper.getMainLooper());
+		mCache = new LruCache<Long, Bitmap>(maxBytes) {
+			@Override
+			protected int sizeOf(Long key, Bitmap bitmap) {
+				return bitmap.getRowBytes() * bitmap.getHeight();
+			}
+		};
+		mExecutor = BackgroundExecutor.newSingleThread(name);
+	}
+
+	/**
+	 * Shows the bitmap for the key in the view. A cached bitmap is set
+	 * right away, otherwise the view is cleared and waits for it.
+	 * @return false if nothing is producing the bitmap yet, the caller
+	 *         then starts it with produce()
+	 */
+	boolean bind(ImageView view, Long key) {
+		mRequested.put(view, key);
+
+		Bitmap bitmap = mCache.get(key);
+		if (bitmap != null) {
+			view.setImageBitmap(bitmap);
+			return true;
+		}
+
+		view.setImageDrawable(null);
+		ArrayList<ImageView> waiting = mPending.get(key);
+		if (waiting != null) {
+			waiting.add(view);
+			return true;
+		}
+		waiting = new ArrayList<ImageView>();
+		waiting.add(view);
+		mPending.put(key, waiting);
+		return false;
+	}
+
+	/**
+	 * Produces the bitmap bind() returned false for on the background
+	 * thread and hands it to the views waiting for it.
+	 */
+	void produce(final Long key, final Producer producer) {
+		mExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				final Bitmap bitmap = producer.produce();
+				mHandler.post(new Runnable() {
+					@Override
+					public void run() {
+						deliver(key, bitmap);
+					}
+				});
+			}
+		});
+	}
+
+	Bitmap get(Long key) {
+		return mCache.get(key);
+	}
+
+	void put(Long key, Bitmap bitmap) {
+		mCache.put(key, bitmap);
+	}
+
+	/**
+	 * Forgets the key last asked for by the view, so a bitmap still in
+	 * flight is not set on a view that now shows something else.
+	 */
+	void cancel(ImageView view) {
+		mRequested.remove(view);
+	}
+
+	void evictAll() {
+		mCache.evictAll();
+	}
+
+	/**
+	 * Stops the background thread. Bitmaps in flight are dropped.
+	 */
+	void shutdown() {
+		mExecutor.shutdownNow();
+		mPending.clear();
+	}
+
+	private void deliver(Long key, Bitmap bitmap) {
+		ArrayList<ImageView> waiting = mPending.remove(key);
+		if (bitmap == null || waiting == null) return;
+		mCache.put(key, bitmap);
+		for (int i = 0; i < waiting.size(); i++) {
+			ImageView view = waiting.get(i);
+			if (key.equals(mRequested.get(view))) {
+				view.setImageBitmap(bitmap);
+			}
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package com.test.springboard;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import android.os.Process;
+
+/**
+ * Creates the single thread executors the caches and stores do their
+ * disk and decode work on. Their threads run at background priority so
+ * they never compete with the UI thread for a frame.
+ */
+final class BackgroundExecutor {
+
+	private BackgroundExecutor() {
+	}
+
+	/**
+	 * @param name - name of the thread, shows up in traces
+	 */
+	static ExecutorService newSingleThread(final String name) {
+		return Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable r) {
+				return new Thread(new Runnable() {
+					@Override
+					public void run() {
+						Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+						r.run();
+					}
+				}, name);
+			}
+		});
+	}
+}
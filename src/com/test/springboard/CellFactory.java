@@ -0,0 +1,167 @@
+package com.test.springboard;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Process;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.ImageView;
+import android.widget.LinearLayout;
+
+/**
+ * Pool of icon cells (R.layout.one_item) inflated ahead of time on a
+ * background thread. obtain() hands out a pooled cell when there is
+ * one and only inflates on the calling thread when the pool is empty.
+ * The pool is topped up again whenever the UI thread goes idle.
+ *
+ * Hit and miss counters tell how often obtain() had to inflate, which
+ * is what the pool size should be tuned against.
+ */
+public class CellFactory {
+
+	private final String TAG = "CellFactory";
+
+	private final LayoutInflater mInflater;
+	private final LayoutInflater mBackgroundInflater;
+	private final int mPoolSize;
+	private volatile int mIconSize = 0;
+
+	private final ConcurrentLinkedQueue<View> mPool = new ConcurrentLinkedQueue<View>();
+	private final AtomicInteger mPoolCount = new AtomicInteger();
+	private final AtomicInteger mHits = new AtomicInteger();
+	private final AtomicInteger mMisses = new AtomicInteger();
+
+	private final HandlerThread mThread;
+	private final Handler mHandler;
+	private boolean mRefillScheduled = false;
+
+	private final Runnable mFill = new Runnable() {
+		@Override
+		public void run() {
+			while (mPoolCount.get() < mPoolSize) {
+				View cell = inflateCell(mBackgroundInflater);
+				mPool.offer(cell);
+				mPoolCount.incrementAndGet();
+			}
+		}
+	};
+
+	// Tops the pool up once the UI thread has nothing else to do.
+	private final MessageQueue.IdleHandler mRefill = new MessageQueue.IdleHandler() {
+		@Override
+		public boolean queueIdle() {
+			mRefillScheduled = false;
+			prewarm();
+			return false;
+		}
+	};
+
+	/**
+	 * @param context - context the cells are inflated with
+	 * @param poolSize - number of cells kept ready in the pool
+	 */
+	public CellFactory(Context context, int poolSize) {
+		mInflater = LayoutInflater.from(context);
+		// LayoutInflater is not thread safe, the background thread gets its own.
+		mBackgroundInflater = mInflater.cloneInContext(context);
+		mPoolSize = poolSize;
+		mThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+		mThread.start();
+		mHandler = new Handler(mThread.getLooper());
+	}
+
+	/**
+	 * Sets the size the icon of each cell is shown at, so pooled cells
+	 * come with their icon layout params already set.
+	 */
+	public void setIconSize(int iconSize) {
+		mIconSize = iconSize;
+	}
+
+	/**
+	 * Starts filling the pool on the background thread.
+	 */
+	public void prewarm() {
+		mHandler.removeCallbacks(mFill);
+		mHandler.post(mFill);
+	}
+
+	/**
+	 * Returns a cell from the pool, or inflates one on the calling
+	 * thread if the pool is empty. Must be called on the UI thread.
+	 */
+	public View obtain() {
+		View cell = mPool.poll();
+		if (cell != null) {
+			mPoolCount.decrementAndGet();
+			mHits.incrementAndGet();
+		} else {
+			mMisses.incrementAndGet();
+			cell = inflateCell(mInflater);
+		}
+		scheduleRefill();
+		return cell;
+	}
+
+	/**
+	 * Puts a cell that was obtained but not used back into the pool.
+	 */
+	public void release(View cell) {
+		if (cell.getParent() != null || mPoolCount.get() >= mPoolSize) return;
+		mPool.offer(cell);
+		mPoolCount.incrementAndGet();
+	}
+
+	public int getHitCount() {
+		return mHits.get();
+	}
+
+	public int getMissCount() {
+		return mMisses.get();
+	}
+
+	public int getPooledCount() {
+		return mPoolCount.get();
+	}
+
+	public void shutdown() {
+		mHandler.removeCallbacks(mFill);
+		mThread.quit();
+		mPool.clear();
+		mPoolCount.set(0);
+	}
+
+	private void scheduleRefill() {
+		if (mRefillScheduled) return;
+		mRefillScheduled = true;
+		Looper.myQueue().addIdleHandler(mRefill);
+	}
+
+	/**
+	 * Sizes the icon of the cell to the current icon size. Cells pooled or
+	 * bound before setIconSize() changed it are fixed up this way when
+	 * they are bound.
+	 */
+	public void applyIconSize(View cell) {
+		int iconSize = mIconSize;
+		if (iconSize <= 0) return;
+		ImageView ivIcon = (ImageView) cell.findViewById(R.id.ivIcon);
+		LinearLayout.LayoutParams ivParams = (LinearLayout.LayoutParams) ivIcon.getLayoutParams();
+		if (ivParams.width == iconSize && ivParams.height == iconSize) return;
+		ivParams.width = iconSize;
+		ivParams.height = iconSize;
+		ivIcon.setLayoutParams(ivParams);
+	}
+
+	private View inflateCell(LayoutInflater inflater) {
+		View cell = inflater.inflate(R.layout.one_item, null);
+		applyIconSize(cell);
+		return cell;
+	}
+}
@@ -0,0 +1,61 @@
+package com.test.springboard;
+
+import java.util.ArrayList;
+
+import android.view.View;
+
+/**
+ * Scrap pool for cells that scrolled out of the bound range of an
+ * adapter-driven DraggableView. Views are kept detached from their
+ * parent, one stack per adapter view type, and handed back to the
+ * adapter as convertView when a new cell has to be bound.
+ */
+public class CellRecycler {
+
+	private ArrayList<View>[] mScrap;
+
+	public CellRecycler() {
+		setViewTypeCount(1);
+	}
+
+	@SuppressWarnings("unchecked")
+	public void setViewTypeCount(int viewTypeCount) {
+		if (viewTypeCount < 1) viewTypeCount = 1;
+		mScrap = new ArrayList[viewTypeCount];
+		for (int i = 0; i < viewTypeCount; i++) {
+			mScrap[i] = new ArrayList<View>();
+		}
+	}
+
+	/**
+	 * Puts a detached view into the pool. Returns false if the view
+	 * type cannot be recycled, the caller then has to drop the view.
+	 */
+	public boolean add(View view, int viewType) {
+		if (viewType < 0 || viewType >= mScrap.length) return false;
+		mScrap[viewType].add(view);
+		return true;
+	}
+
+	/**
+	 * Takes a view of the given type out of the pool, or returns null
+	 * if there is none.
+	 */
+	public View get(int viewType) {
+		if (viewType < 0 || viewType >= mScrap.length) return null;
+		ArrayList<View> scrap = mScrap[viewType];
+		int size = scrap.size();
+		return size > 0 ? scrap.remove(size - 1) : null;
+	}
+
+	/**
+	 * Takes any view out of the pool, used to drain it.
+	 */
+	public View poll() {
+		for (int i = 0; i < mScrap.length; i++) {
+			View view = get(i);
+			if (view != null) return view;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,195 @@
+package com.test.springboard;
+
+/**
+ * In-progress order of a drag, kept as an overlay on top of the model.
+ * The model is not touched while the finger moves. The overlay only
+ * records where the dragged item came from, where it is currently shown
+ * and whether the items in between shift (KIND_MOVE) or the dragged
+ * item trades places with the target (KIND_SWAP). A batch (KIND_BATCH)
+ * drags several items as one block, shown next to each other from the
+ * target on while everything else closes up around them. Display positions are
+ * mapped through the overlay, and the container applies the overlay to
+ * its model once when the drag is dropped, or simply ends the session
+ * if the drag is cancelled.
+ */
+public class DragSession {
+
+	public static final int KIND_MOVE = 0;
+	public static final int KIND_SWAP = 1;
+	public static final int KIND_BATCH = 2;
+
+	private int mOrigin = -1;
+	private int mTarget = -1;
+	private int mKind = KIND_MOVE;
+	private int[] mBatch = new int[0];	// Model positions of a batch, sorted ascending.
+	private int mBatchCount = 0;
+
+	/**
+	 * Starts a drag of the item at the given model position.
+	 */
+	public void begin(int origin) {
+		mOrigin = origin;
+		mTarget = origin;
+		mKind = KIND_MOVE;
+	}
+
+	/**
+	 * Starts a drag of the items at the given model positions as one block.
+	 * @param positions - model positions of the items, sorted ascending
+	 * @param count - number of positions used
+	 * @param target - display position the block starts at
+	 */
+	public void beginBatch(int[] positions, int count, int target) {
+		if (mBatch.length < count) mBatch = new int[count];
+		System.arraycopy(positions, 0, mBatch, 0, count);
+		mBatchCount = count;
+		mOrigin = positions[0];
+		mTarget = target;
+		mKind = KIND_BATCH;
+	}
+
+	/**
+	 * Ends the session, the overlay is dropped.
+	 */
+	public void end() {
+		mOrigin = -1;
+		mTarget = -1;
+		mKind = KIND_MOVE;
+		mBatchCount = 0;
+	}
+
+	public boolean isActive() {
+		return mOrigin >= 0;
+	}
+
+	/**
+	 * Model position of the dragged item, or -1 if no drag is running.
+	 */
+	public int getOrigin() {
+		return mOrigin;
+	}
+
+	/**
+	 * Display position the dragged item is currently shown at.
+	 */
+	public int getTarget() {
+		return mTarget;
+	}
+
+	public int getKind() {
+		return mKind;
+	}
+
+	/**
+	 * Number of items dragged, 1 unless a batch is dragged.
+	 */
+	public int getBatchCount() {
+		return mKind == KIND_BATCH ? mBatchCount : 1;
+	}
+
+	/**
+	 * Model positions of the batch, sorted ascending. Only the first
+	 * getBatchCount() entries are used.
+	 */
+	public int[] getBatchPositions() {
+		return mBatch;
+	}
+
+	/**
+	 * Shows the dragged item at target, the items in between shift by one.
+	 */
+	public void moveTo(int target) {
+		mTarget = target;
+		if (mKind != KIND_BATCH) mKind = KIND_MOVE;
+	}
+
+	/**
+	 * Shows the dragged item at target and the item of target at the origin.
+	 */
+	public void swapWith(int target) {
+		mTarget = target;
+		mKind = target == mOrigin ? KIND_MOVE : KIND_SWAP;
+	}
+
+	/**
+	 * Returns the model position of the item shown at the display position.
+	 */
+	public int toModelPosition(int displayPos) {
+		if (mOrigin < 0) return displayPos;
+		if (mKind == KIND_BATCH) return batchToModelPosition(displayPos);
+		return toModelPosition(mKind, mOrigin, mTarget, displayPos);
+	}
+
+	/**
+	 * Returns the display position the item at the model position is shown at.
+	 */
+	public int toDisplayPosition(int modelPos) {
+		if (mOrigin < 0) return modelPos;
+		if (mKind == KIND_BATCH) return batchToDisplayPosition(modelPos);
+		return toDisplayPosition(mKind, mOrigin, mTarget, modelPos);
+	}
+
+	// Display positions from the target on show the batch, every other
+	// display position shows the r-th item not in the batch. The batch
+	// items before the r-th other item are those with position - index <= r,
+	// which grows with the index, so both directions are a binary search.
+	private int batchToModelPosition(int displayPos) {
+		if (displayPos >= mTarget && displayPos < mTarget + mBatchCount) {
+			return mBatch[displayPos - mTarget];
+		}
+		int rank = displayPos < mTarget ? displayPos : displayPos - mBatchCount;
+		int low = 0, high = mBatchCount;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (mBatch[mid] - mid <= rank) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return rank + low;
+	}
+
+	private int batchToDisplayPosition(int modelPos) {
+		// First batch index at or after modelPos.
+		int low = 0, high = mBatchCount;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (mBatch[mid] < modelPos) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		if (low < mBatchCount && mBatch[low] == modelPos) return mTarget + low;
+		int rank = modelPos - low;
+		return rank < mTarget ? rank : rank + mBatchCount;
+	}
+
+	/**
+	 * Same as toModelPosition(int) for an arbitrary overlay, used to
+	 * compare the overlay before and after the target changes.
+	 */
+	public static int toModelPosition(int kind, int origin, int target, int displayPos) {
+		if (displayPos == target) return origin;
+		if (kind == KIND_SWAP) {
+			return displayPos == origin ? target : displayPos;
+		}
+		if (origin < target && displayPos >= origin && displayPos < target) return displayPos + 1;
+		if (target < origin && displayPos > target && displayPos <= origin) return displayPos - 1;
+		return displayPos;
+	}
+
+	/**
+	 * Same as toDisplayPosition(int) for an arbitrary overlay.
+	 */
+	public static int toDisplayPosition(int kind, int origin, int target, int modelPos) {
+		if (modelPos == origin) return target;
+		if (kind == KIND_SWAP) {
+			return modelPos == target ? origin : modelPos;
+		}
+		if (origin < target && modelPos > origin && modelPos <= target) return modelPos - 1;
+		if (target < origin && modelPos >= target && modelPos < origin) return modelPos + 1;
+		return modelPos;
+	}
+}
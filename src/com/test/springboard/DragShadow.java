@@ -0,0 +1,140 @@
+package com.test.springboard;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.view.View;
+import android.view.animation.AnimationUtils;
+
+/**
+ * Snapshot of the dragged icon, drawn by the host container on top of
+ * its children from dispatchDraw(). The real child stays hidden in its
+ * cell during the drag, so following the finger is a matter of moving
+ * the snapshot and invalidating the area it covered before and after,
+ * without any layout pass.
+ *
+ * Picking the icon up scales it from SCALE_FROM to full size while it
+ * fades to ALPHA_TO, the same effect the dragged view used to run as a
+ * fill-after view animation.
+ */
+public class DragShadow {
+
+	private static final float SCALE_FROM = .667f;
+	private static final int ALPHA_TO = 128;
+	private static final int MAX_STACK = 3;		// Copies drawn for a batch, however many items it has.
+
+	private final View mHost;
+	private final long mDuration;
+	private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+	private final Canvas mCanvas = new Canvas();
+	private final Rect mBounds = new Rect();	// In the host's content coordinates.
+
+	private Bitmap mBitmap;
+	private View mView;
+	private long mStartTime;
+	private int mStackCount = 1;
+	private int mStackOffset = 0;
+
+	/**
+	 * @param host - container drawing the shadow, must call draw() from dispatchDraw()
+	 * @param duration - duration of the pick up effect in milliseconds
+	 */
+	public DragShadow(View host, long duration) {
+		mHost = host;
+		mDuration = duration;
+	}
+
+	/**
+	 * Takes a snapshot of the view, hides it and starts drawing the
+	 * snapshot where the view is.
+	 */
+	public void start(View view) {
+		int width = view.getWidth();
+		int height = view.getHeight();
+		if (width <= 0 || height <= 0) return;
+		if (mBitmap == null || mBitmap.getWidth() != width || mBitmap.getHeight() != height) {
+			if (mBitmap != null) mBitmap.recycle();
+			mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+		} else {
+			mBitmap.eraseColor(0);
+		}
+		mCanvas.setBitmap(mBitmap);
+		view.draw(mCanvas);
+
+		mView = view;
+		mView.setVisibility(View.INVISIBLE);
+		mBounds.set(view.getLeft(), view.getTop(), view.getLeft() + width, view.getTop() + height);
+		mStartTime = AnimationUtils.currentAnimationTimeMillis();
+		invalidateBounds();
+	}
+
+	/**
+	 * Draws the snapshot as a stack of up to MAX_STACK copies, for a drag
+	 * of count items. Reset to a single copy by stop().
+	 */
+	public void setStackCount(int count) {
+		if (mView == null) return;
+		invalidateBounds();
+		mStackCount = Math.max(1, Math.min(count, MAX_STACK));
+		mStackOffset = mBitmap.getWidth() / 16;
+		invalidateBounds();
+	}
+
+	/**
+	 * Moves the top left corner of the shadow to the given content position.
+	 */
+	public void moveTo(int left, int top) {
+		offset(left - mBounds.left, top - mBounds.top);
+	}
+
+	public void offset(int dx, int dy) {
+		if (mView == null || (dx == 0 && dy == 0)) return;
+		invalidateBounds();
+		mBounds.offset(dx, dy);
+		invalidateBounds();
+	}
+
+	/**
+	 * Stops drawing the shadow and shows the real view again.
+	 */
+	public void stop() {
+		if (mView == null) return;
+		invalidateBounds();
+		mView.setVisibility(View.VISIBLE);
+		mView = null;
+		mStackCount = 1;
+		mStackOffset = 0;
+	}
+
+	public boolean isActive() {
+		return mView != null;
+	}
+
+	public void draw(Canvas canvas) {
+		if (mView == null) return;
+		float fraction = mDuration > 0
+				? (float) (AnimationUtils.currentAnimationTimeMillis() - mStartTime) / mDuration : 1f;
+		if (fraction > 1f) fraction = 1f;
+		float scale = SCALE_FROM + (1f - SCALE_FROM) * fraction;
+		mPaint.setAlpha((int) (255 - (255 - ALPHA_TO) * fraction));
+
+		canvas.save();
+		canvas.translate(mBounds.left, mBounds.top);
+		canvas.scale(scale, scale, mBitmap.getWidth() / 2f, mBitmap.getHeight() / 2f);
+		for (int i = mStackCount - 1; i > 0; i--) {
+			canvas.drawBitmap(mBitmap, i * mStackOffset, i * mStackOffset, mPaint);
+		}
+		canvas.drawBitmap(mBitmap, 0, 0, mPaint);
+		canvas.restore();
+
+		// Keep drawing frames until the pick up effect is done.
+		if (fraction < 1f) invalidateBounds();
+	}
+
+	private void invalidateBounds() {
+		int stack = (mStackCount - 1) * mStackOffset;
+		mHost.invalidate(mBounds.left, mBounds.top, mBounds.right + stack, mBounds.bottom + stack);
+		if (SpringboardTrace.ENABLED) SpringboardTrace.count(SpringboardTrace.COUNT_INVALIDATE);
+	}
+}
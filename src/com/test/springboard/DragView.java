@@ -1,22 +1,15 @@
 package com.test.springboard;
 
-import java.util.HashMap;
-
 import android.content.Context;
-import android.graphics.Point;
+import android.graphics.Canvas;
 import android.util.Log;
 import android.view.Display;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
-import android.view.animation.AlphaAnimation;
-import android.view.animation.Animation;
-import android.view.animation.AnimationSet;
-import android.view.animation.ScaleAnimation;
-import android.view.animation.TranslateAnimation;
 import android.widget.TextView;
 
-public class DragView extends ViewGroup implements View.OnLongClickListener {
+public class DragView extends ViewGroup implements View.OnLongClickListener, EditJournal.Editor {
 
 	private final String TAG = "DragView";
 	private Context mContext;
@@ -26,14 +19,18 @@ public class DragView extends ViewGroup implements View.OnLongClickListener {
 	private int mChildSize;			// Indicates the size of each child item. Calculated based on screen width and max no. of columns.
 	private int mTouchDownX, mTouchDownY = 0;
 	private int mFullGridItemCount = 0;
-	private int mDraggedItem = -1;
 	private int mTouchDownDragged = -1;
-	private int mPreviousSwapPosition = -1;
-	private int mScreenHeight;
+	private int mViewportHeight;	// Measured height, the tray sits at its bottom.
 	private View mDraggedView;
 	
-	private HashMap<Integer, View> mGridMap;
-	private HashMap<Integer, View> mTrayMap;
+	private PositionModel<View> mGridModel;
+	private PositionModel<View> mTrayModel;
+	private GridLayoutEngine mLayoutEngine;
+	private ShiftAnimator mShiftAnimator;
+	private DragShadow mDragShadow;		// Drawn in place of the dragged view, which stays hidden in its cell.
+	private DragSession mDragSession;		// Order shown while dragging, the models are only written on drop.
+	private int mMeasuredChildSize = 0;	// Cell size the children were last measured at.
+	private ReorderListener mReorderListener;
 	
 	public DragView(Context context) {
 		super(context);
@@ -46,13 +43,16 @@ public class DragView extends ViewGroup implements View.OnLongClickListener {
 	private void init() {
 		// Calculate child size here
 		
-		mGridMap = new HashMap<Integer, View>();
-		mTrayMap = new HashMap<Integer, View>();
+		mGridModel = new PositionModel<View>();
+		mTrayModel = new PositionModel<View>(4);
+		mLayoutEngine = new GridLayoutEngine();
+		mShiftAnimator = new ShiftAnimator(this, animTime);
+		mDragShadow = new DragShadow(this, animTime);
+		mDragSession = new DragSession();
 		
+		// Only an estimate until the first measure.
 		Display display = ((SpringboardActivity) mContext).getWindowManager().getDefaultDisplay();
-		int screenWidth = display.getWidth();
-		mScreenHeight = display.getHeight();
-		mChildSize = (int) screenWidth / mColCount;
+		setViewportSize(display.getWidth(), display.getHeight());
 		
 		setOnLongClickListener(this);
 		
@@ -75,37 +75,82 @@ public class DragView extends ViewGroup implements View.OnLongClickListener {
 	 * @param params - params of the view to be added to DragView
 	 */
 	public void addViewToLayout(boolean isTray, View child, int index, LayoutParams params) {
-		Log.i(SpringboardActivity.LOGTAG, TAG + " - addViewToLayout index: "+index+" isTray: "+isTray);
 		if (isTray) {
-			mTrayMap.put(index - mGridMap.size(), child);
+			mTrayModel.put(index - mGridModel.size(), child);
 		} else {
-			mGridMap.put(index, child);
+			mGridModel.put(index, child);
 		}
+		updateGeometry();
 		addViewInLayout(child, index, params);
 	}
 	
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+		// Cells snap to the new geometry on the next onLayout().
+		setViewportSize(getMeasuredWidth(), getMeasuredHeight());
+		
+		// Children are only measured again when the cell size changed
+		// or when they asked for it themselves.
+		boolean sizeChanged = mMeasuredChildSize != mChildSize;
+		measureCells(mGridModel, sizeChanged);
+		measureCells(mTrayModel, sizeChanged);
+		mMeasuredChildSize = mChildSize;
+	}
+	
+	private void measureCells(PositionModel<View> model, boolean sizeChanged) {
+		for (int i = 0; i < model.size(); i++) {
+			View child = model.get(i);
+			if (child == null || !(sizeChanged || child.isLayoutRequested())) continue;
+			if (sizeChanged) {
+				child.getLayoutParams().width = mChildSize;
+				child.getLayoutParams().height = mChildSize;
+			}
+			child.measure(MeasureSpec.makeMeasureSpec(child.getLayoutParams().width, MeasureSpec.UNSPECIFIED),
+                    MeasureSpec.makeMeasureSpec(child.getLayoutParams().height, MeasureSpec.UNSPECIFIED));
+			model.markDirty(i, i);
+		}
+	}
+	
 	@Override
 	protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
 
-		Log.i(SpringboardActivity.LOGTAG, TAG + " - onLayout - changed: "+changed+" left: "+left+" top: "+top+" right: "+right+" bottom: "+bottom);
+		long traceStart = SpringboardTrace.ENABLED ? SpringboardTrace.begin() : 0;
 
-		for (int i = 0; i < getGridViewCount(); i++) {
-			View child = mGridMap.get(i);
-			Point xy = getCoordinatesFromPosition(i);
-			child.measure(MeasureSpec.makeMeasureSpec(child.getLayoutParams().width, MeasureSpec.UNSPECIFIED),
-                    MeasureSpec.makeMeasureSpec(child.getLayoutParams().height, MeasureSpec.UNSPECIFIED));
-			child.layout(xy.x, xy.y, xy.x + mChildSize, xy.y + mChildSize);
+		if (changed) {
+			mShiftAnimator.endAll();
+			mGridModel.markAllDirty();
+			mTrayModel.markAllDirty();
 		}
+		layoutDirtyCells(mGridModel, 0);
+		layoutDirtyCells(mTrayModel, getGridViewCount());
 		
-		for (int j = 0; j < getTrayViewCount(); j++) {
-			View child = mTrayMap.get(j);
-			Point xy = getCoordinatesFromPosition(j+getGridViewCount());
-			child.measure(MeasureSpec.makeMeasureSpec(child.getLayoutParams().width, MeasureSpec.UNSPECIFIED),
-                    MeasureSpec.makeMeasureSpec(child.getLayoutParams().height, MeasureSpec.UNSPECIFIED));
-			child.layout(xy.x, xy.y, xy.x + mChildSize, xy.y + mChildSize);
+		if (SpringboardTrace.ENABLED) SpringboardTrace.end(SpringboardTrace.LAYOUT, traceStart);
+	}
+	
+	@Override
+	protected void dispatchDraw(Canvas canvas) {
+		super.dispatchDraw(canvas);
+		mDragShadow.draw(canvas);
+	}
+	
+	// Lays out only the positions that were added or moved since the last
+	// pass. offset maps a model position to its layout position, which the
+	// drag session maps on to the position shown while dragging.
+	private void layoutDirtyCells(PositionModel<View> model, int offset) {
+		if (!model.isDirty()) return;
+		int last = model.getDirtyEnd();
+		for (int i = model.getDirtyStart(); i <= last; i++) {
+			View child = model.get(i);
+			if (child == null || (mDragSession.isActive() && child == mDraggedView)) continue;
+			if (mShiftAnimator.isAnimating(child)) continue;
+			int position = mDragSession.toDisplayPosition(i + offset);
+			int cellLeft = mLayoutEngine.getLeft(position);
+			int cellTop = mLayoutEngine.getTop(position);
+			child.layout(cellLeft, cellTop, cellLeft + mChildSize, cellTop + mChildSize);
+			if (SpringboardTrace.ENABLED) SpringboardTrace.count(SpringboardTrace.COUNT_LAYOUT_CHILD);
 		}
-		
-		invalidate();
+		model.clearDirty();
 	}
 	
 	@Override
@@ -123,111 +168,45 @@ public class DragView extends ViewGroup implements View.OnLongClickListener {
 				int x = (int) event.getX();
 				int y = (int) event.getY();
 				
-				if (mDraggedItem >= 0) {
+				if (mDragSession.isActive()) {
 					setDraggedItemPosition(x, y);
 					int index = getIndexFromCoordinates(x, y);
-					if (index == mDraggedItem) break;
+					boolean fromGrid = mDragSession.getOrigin() < getGridViewCount();
+					if (index == -1) {
+						if (!fromGrid) break;
+						index = mGridModel.size()-1;
+					}
+					if (index == mDragSession.getTarget()) break;
 					
-					if (mDraggedItem < getGridViewCount()) 
-					{
-						Log.i(SpringboardActivity.LOGTAG, TAG + " Grid Area - index: "+index+" mDraggedItem: "+mDraggedItem);
-						if (index == -1) index = mGridMap.size()-1;
-						
-						if (index < getGridViewCount()) { 
-							if (index < mDraggedItem) {
-								for (int i = index; i < mDraggedItem; i++) {
-									moveViewToPosition(i, i+1);
-								}
-								for (int i = mDraggedItem-1; i >= index; i--) {
-									View view = mGridMap.get(i);
-									mGridMap.put(i+1, view);
-								}
-							} else {
-								for (int i = index; i > mDraggedItem; i--) {
-									moveViewToPosition(i, i-1);
-								}
-								for (int i = mDraggedItem+1; i <= index; i++) {
-									View view = mGridMap.get(i);
-									mGridMap.put(i-1, view);
-								}
-							}
-//							Log.i(SpringboardActivity.LOGTAG, TAG + " - onTouchEvent - ACTION_MOVE - mDraggedItem: "+mDraggedItem+" index: "+index);
-							mGridMap.put(index, mDraggedView);
-							mDraggedItem = index;
-						} else {
-							// User moved icon into app tray.
-							// Swap icons here 
-							
-							if (mPreviousSwapPosition != index) {
-								swapViews(index);
-							}
-						}
-					} 
-					else if (mDraggedItem >= getGridViewCount()) 
-					{
-						Log.i(SpringboardActivity.LOGTAG, TAG + " Tray Area - index: "+index+" mDraggedItem: "+mDraggedItem);
-						if (index == -1) break;
-						
-						if (index >= getGridViewCount()) {
-							// User moving around the items within App Tray.
-							// Re-arrange icons using the same logic as grid
-							if (index < mDraggedItem) {
-								for (int i = index; i < mDraggedItem; i++) {
-									moveViewToPosition(i, i+1);
-								}
-								int dragged = mDraggedItem - getGridViewCount();
-								for (int i = dragged-1; i >= index-getGridViewCount(); i--) {
-									View view = mTrayMap.get(i);
-									mTrayMap.put(i+1, view);
-								}
-							} else {
-								for (int i = index; i > mDraggedItem; i--) {
-									moveViewToPosition(i, i-1);
-								}
-								int dragged = mDraggedItem - getGridViewCount();
-								for (int i = dragged+1; i <= index-getGridViewCount(); i++) {
-									View view = mTrayMap.get(i);
-									mTrayMap.put(i-1, view);
-								}
-							}
-							
-//							Log.i(SpringboardActivity.LOGTAG, TAG + " - onTouchEvent - ACTION_MOVE - mDraggedItem: "+mDraggedItem+" index: "+index);
-							mTrayMap.put(index-getGridViewCount(), mDraggedView);
-							mDraggedItem = index;
-						} else {
-							// User moving the icon into Grid.
-							// Swap icons only if the dragged icon is placed within 
-							// bounds of another icon in grid
-							
-							if (mPreviousSwapPosition != index) {
-								swapViews(index);
-							}
-						}
+					if ((index < getGridViewCount()) == fromGrid) {
+						// User moving the icon around within the grid or within
+						// the app tray, the icons in between shift.
+						retargetDrag(DragSession.KIND_MOVE, index);
+					} else {
+						// User moving the icon between grid and app tray.
+						// It swaps places with the icon it is placed on.
+						retargetDrag(DragSession.KIND_SWAP, index);
 					}
 				}
 				
 				break;
 			}
-			case MotionEvent.ACTION_UP: {
-				
-				int x = (int) event.getX();
-				int y = (int) event.getY();
+			case MotionEvent.ACTION_UP:
+			case MotionEvent.ACTION_CANCEL: {
 				
-				if (mDraggedItem >= 0) {
-					
-					int index = getIndexFromCoordinates(x, y);
-					if (index == -1) index = mGridMap.size()-1;
-					
-					Point xy = getCoordinatesFromPosition(index);
-					mDraggedView.layout(xy.x, xy.y, xy.x+mChildSize, xy.y+mChildSize);
-					/*if (mDraggedItem < getGridViewCount()) {
-						mGridMap.put(index, mDraggedView);
+				if (mDragSession.isActive()) {
+					int index;
+					if (event.getAction() == MotionEvent.ACTION_UP) {
+						index = commitDrag();
 					} else {
-						mTrayMap.put(index-getGridViewCount(), mDraggedView);
-					}*/
-					mDraggedView.clearAnimation();
+						index = cancelDrag();
+					}
+					
+					int cellLeft = mLayoutEngine.getLeft(index);
+					int cellTop = mLayoutEngine.getTop(index);
+					mDraggedView.layout(cellLeft, cellTop, cellLeft+mChildSize, cellTop+mChildSize);
+					mDragShadow.stop();
 				}
-				mDraggedItem = -1;
 				break;
 			}
 		}
@@ -241,143 +220,170 @@ public class DragView extends ViewGroup implements View.OnLongClickListener {
 		int index = getIndexFromCoordinates(mTouchDownX, mTouchDownY);
 		if (index >= 0) {
 			// animate this item for enabling drag.
-			mTouchDownDragged = mDraggedItem = index;
-			if (index < getGridViewCount()) {
-				mDraggedView = mGridMap.get(index);
-			} else {
-				mDraggedView = mTrayMap.get(index - getGridViewCount());
-			}
+			mTouchDownDragged = index;
+			mDragSession.begin(index);
+			mDraggedView = getViewAt(index);
+			mShiftAnimator.cancel(mDraggedView);
+			mDragShadow.start(mDraggedView);
 			setDraggedItemPosition(mTouchDownX, mTouchDownY);
-			animateDragged();
 		}
 		
-		Log.i(SpringboardActivity.LOGTAG, TAG + " - onLongClick - dragged item: "+mDraggedItem+" gridViewCount: "+getGridViewCount());
-		
 		return false;
 	}
 	
 	private void setDraggedItemPosition(int x, int y) {
 		int halfWidth = mChildSize/2;
-		mDraggedView.layout(x-halfWidth, y-halfWidth, x+halfWidth, y+halfWidth);
-		invalidate();
+		mDragShadow.moveTo(x-halfWidth, y-halfWidth);
 	}
 	
 	private final int animTime = 150;
-	private void animateDragged() {
-		AnimationSet animSet = new AnimationSet(true);
-		ScaleAnimation scale = new ScaleAnimation(.667f, 1, .667f, 1, mChildSize * 3 / 4, mChildSize * 3 / 4);
-		scale.setDuration(animTime);
-		AlphaAnimation alpha = new AlphaAnimation(1, .5f);
-		alpha.setDuration(animTime);
-		animSet.addAnimation(scale);
-		animSet.addAnimation(alpha);
-		animSet.setFillEnabled(true);
-		animSet.setFillAfter(true);
-		mDraggedView.clearAnimation();
-		mDraggedView.startAnimation(animSet);
-	}
 	
-	private void animateNavigation(View v, int fromPos, int toPos) {
-		Point oldXY = getCoordinatesFromPosition(fromPos);
-		Point newXY = getCoordinatesFromPosition(toPos);
-		Point oldOffset = new Point(oldXY.x - v.getLeft(), oldXY.y - v.getTop());
-		Point newOffset = new Point(newXY.x - v.getLeft(), newXY.y - v.getTop());
-		
-		TranslateAnimation translate = new TranslateAnimation(Animation.ABSOLUTE, oldOffset.x,
-															  Animation.ABSOLUTE, newOffset.x,
-															  Animation.ABSOLUTE, oldOffset.y,
-															  Animation.ABSOLUTE, newOffset.y);
-		translate.setDuration(animTime);
-		translate.setFillEnabled(true);
-		translate.setFillAfter(true);
-		v.clearAnimation();
-		v.startAnimation(translate);
+	private void animateNavigation(View v, int toPos) {
+		if (v == null) return;
+		mShiftAnimator.animateTo(v, mLayoutEngine.getLeft(toPos), mLayoutEngine.getTop(toPos));
 	}
 	
-	private void swapViews(int toPos) {
-		Log.i(SpringboardActivity.LOGTAG, TAG + " - swapViews - draggedItem: "+mDraggedItem+" toPos: "+toPos+" mPreviousSwapPosition: "+mPreviousSwapPosition);
-		if (mPreviousSwapPosition != -1) {
-			moveViewToPosition(mDraggedItem, mPreviousSwapPosition);
-			if (mDraggedItem < getGridViewCount()) {
-				swapTwoViewsInMap(mPreviousSwapPosition, mDraggedItem);
-			} else {
-				swapTwoViewsInMap(mDraggedItem-getGridViewCount(), mPreviousSwapPosition);
-			}
+	// Shows the dragged item at the target position. Only the drag session
+	// changes, every icon whose shown position differs between the old and
+	// the new session state shifts there while the models stay untouched.
+	private void retargetDrag(int kind, int target) {
+		int origin = mDragSession.getOrigin();
+		int oldKind = mDragSession.getKind();
+		int oldTarget = mDragSession.getTarget();
+		if (kind == DragSession.KIND_SWAP) {
+			mDragSession.swapWith(target);
 		} else {
-			moveViewToPosition(mDraggedItem, toPos);
+			mDragSession.moveTo(target);
+		}
+		int first = Math.min(origin, Math.min(oldTarget, target));
+		int last = Math.max(origin, Math.max(oldTarget, target));
+		for (int i = first; i <= last; i++) {
+			int modelPos = mDragSession.toModelPosition(i);
+			if (modelPos == origin) continue;
+			if (DragSession.toDisplayPosition(oldKind, origin, oldTarget, modelPos) != i) {
+				animateNavigation(getViewAt(modelPos), i);
+			}
 		}
-		moveViewToPosition(toPos, mDraggedItem);
-		if (mDraggedItem < getGridViewCount()) {
-			// swap from grid map to tray map
-			int trayPos = toPos - getGridViewCount();
-			swapTwoViewsInMap(trayPos, mDraggedItem);
+	}
+	
+	// Writes the order shown by the drag session to the models in one step
+	// and ends the session. Returns the final position of the dragged item.
+	private int commitDrag() {
+		int origin = mDragSession.getOrigin();
+		int target = mDragSession.getTarget();
+		int kind = mDragSession.getKind();
+		mDragSession.end();
+		if (origin == target) return target;
+		
+		if (kind == DragSession.KIND_SWAP) {
+			// Grid positions always come before tray positions.
+			swapTwoViewsInMap(Math.max(origin, target) - getGridViewCount(), Math.min(origin, target));
 		} else {
-			// swap from tray map to grid map
-			int trayPos = mDraggedItem - getGridViewCount();
-			swapTwoViewsInMap(trayPos, toPos);
+			if (origin < getGridViewCount()) {
+				mGridModel.move(origin, target);
+			} else {
+				mTrayModel.move(origin-getGridViewCount(), target-getGridViewCount());
+			}
+			if (mReorderListener != null) mReorderListener.onItemMoved(origin, target);
 		}
-		mPreviousSwapPosition = toPos;
+		return target;
+	}
+	
+	// Shifts every icon back to where the models have it and ends the
+	// session without touching the models.
+	private int cancelDrag() {
+		int origin = mDragSession.getOrigin();
+		retargetDrag(DragSession.KIND_MOVE, origin);
+		mDragSession.end();
+		return origin;
 	}
 	
 	private void swapTwoViewsInMap(int trayPos, int gridPos) {
-		View view = mTrayMap.get(trayPos);
-		mTrayMap.put(trayPos, mGridMap.get(gridPos));
-		mGridMap.put(gridPos, view);
+		View view = mTrayModel.get(trayPos);
+		mTrayModel.put(trayPos, mGridModel.get(gridPos));
+		mGridModel.put(gridPos, view);
+		if (mReorderListener != null) mReorderListener.onItemsSwapped(gridPos, trayPos + getGridViewCount());
+	}
+	
+	@Override
+	public boolean beginEdit() {
+		if (mDragSession.isActive()) return false;
+		mShiftAnimator.beginBatch();
+		return true;
 	}
 	
-	private void moveViewToPosition(int fromPos, int toPos) {
-//		Log.i(SpringboardActivity.LOGTAG, TAG + " - moveViewToPosition - fromPos: "+fromPos+" toPos: "+toPos);
-		View swapView;
+	/**
+	 * Moves an item within the grid or within the tray outside of a drag,
+	 * as undo and redo do. Only the items in between shift.
+	 */
+	@Override
+	public void moveItem(int fromPos, int toPos) {
 		if (fromPos < getGridViewCount()) {
-			swapView = mGridMap.get(fromPos);
+			mGridModel.move(fromPos, toPos);
 		} else {
-			swapView = mTrayMap.get(fromPos-getGridViewCount());
+			mTrayModel.move(fromPos-getGridViewCount(), toPos-getGridViewCount());
+		}
+		if (mReorderListener != null) mReorderListener.onItemMoved(fromPos, toPos);
+		for (int i = Math.min(fromPos, toPos); i <= Math.max(fromPos, toPos); i++) {
+			animateNavigation(getViewAt(i), i);
 		}
-		animateNavigation(swapView, fromPos, toPos);
-		invalidate();
 	}
 	
-	private Point getCoordinatesFromPosition(int index) {
-		Point xy =  new Point();
-		int col = index % mColCount;
-        int row = index / mColCount;
-        
-		if (index < getGridViewCount()) {
-			xy.x = mChildSize * col;
-	        xy.y = mChildSize * row;
-		} else {
-			xy.x = mChildSize * (index - getGridViewCount());
-			int topMargin = mScreenHeight - mChildSize;
-			xy.y = topMargin - 24 - 24;
+	/**
+	 * Swaps a grid item with a tray item outside of a drag.
+	 */
+	@Override
+	public void swapItems(int posA, int posB) {
+		int gridPos = Math.min(posA, posB);
+		int trayPos = Math.max(posA, posB);
+		swapTwoViewsInMap(trayPos - getGridViewCount(), gridPos);
+		animateNavigation(getViewAt(gridPos), gridPos);
+		animateNavigation(getViewAt(trayPos), trayPos);
+	}
+	
+	@Override
+	public void endEdit() {
+		mShiftAnimator.endBatch();
+	}
+	
+	// Returns the view at the given model position, grid or tray.
+	private View getViewAt(int position) {
+		if (position < getGridViewCount()) {
+			return mGridModel.get(position);
 		}
-		
-		return xy;
+		return mTrayModel.get(position-getGridViewCount());
 	}
 	
 	// Returns the index of the item that is being pressed based on the 
 	// co-ordinates of the touch position.
 	// Doesnt return index if one of the tab bar items is clicked.
 	private int getIndexFromCoordinates(int x, int y) {
-		
-		for (int i = 0; i < getGridViewCount(); i++) {
-			Point xy = getCoordinatesFromPosition(i);
-			if ((x > xy.x) && (x < (xy.x+mChildSize))) {
-				if ((y > xy.y) && (y < (xy.y+mChildSize))) {
-					return i;
-				}
-			}
-		}
-		
-		for (int j = 0; j < getTrayViewCount(); j++) {
-			Point xy = getCoordinatesFromPosition(j+getGridViewCount());
-			if ((x > xy.x) && (x < (xy.x+mChildSize))) {
-				if ((y > xy.y) && (y < (xy.y+mChildSize))) {
-					return j+getGridViewCount();
-				}
-			}
+		return mLayoutEngine.getIndex(x, y);
+	}
+	
+	// Passes the current geometry inputs to the layout engine.
+	// The cell table is only rebuilt if one of them changed.
+	private void updateGeometry() {
+		if (mLayoutEngine.configure(mColCount, mChildSize, mViewportHeight, getGridViewCount(),
+				getGridViewCount() + getTrayViewCount())) {
+			mGridModel.markAllDirty();
+			mTrayModel.markAllDirty();
 		}
-		
-		return -1;
+	}
+	
+	private void setViewportSize(int width, int height) {
+		if (width <= 0 || height <= 0) return;
+		mChildSize = width / mColCount;
+		mViewportHeight = height;
+		updateGeometry();
+	}
+	
+	/**
+	 * Sets the listener told about every reorder a drag applies,
+	 * for example a LayoutStore persisting the order.
+	 */
+	public void setReorderListener(ReorderListener listener) {
+		mReorderListener = listener;
 	}
 	
 	// Getter setter methods below for convenience.
@@ -386,16 +392,16 @@ public class DragView extends ViewGroup implements View.OnLongClickListener {
 	}
 	
 	public int getGridViewCount() {
-		return mGridMap.size();
+		return mGridModel.size();
 	}
 	
 	public int getTrayViewCount() {
-		return mTrayMap.size();
+		return mTrayModel.size();
 	}
 	
 	public void printAllItemsInTrayView() {
 		for (int i = 0; i < getTrayViewCount(); i++) {
-			View view = mTrayMap.get(i);
+			View view = mTrayModel.get(i);
 			TextView tv = (TextView) view.findViewById(R.id.tvIcon);
 			Log.i(SpringboardActivity.LOGTAG, TAG + " - print - i: " + i + " tv text: "+tv.getText().toString());
 		}
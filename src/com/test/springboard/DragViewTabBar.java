@@ -1,21 +1,15 @@
 package com.test.springboard;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 
 import android.content.Context;
-import android.graphics.Point;
+import android.graphics.Canvas;
 import android.util.Log;
 import android.view.Display;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
-import android.view.animation.AlphaAnimation;
-import android.view.animation.Animation;
-import android.view.animation.AnimationSet;
-import android.view.animation.ScaleAnimation;
-import android.view.animation.TranslateAnimation;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 
@@ -32,9 +26,13 @@ public class DragViewTabBar extends ViewGroup implements View.OnLongClickListene
 	private int mDraggedItem = -1;
 	private int mTouchDownDragged = -1;
 	private View mDraggedView;
-	private int mScreenHeight = 0;
+	private int mViewportHeight = 0;
 	
-	private HashMap<Integer, View> mViewMap;
+	private PositionModel<View> mViewModel;
+	private GridLayoutEngine mLayoutEngine;
+	private ShiftAnimator mShiftAnimator;
+	private DragShadow mDragShadow;		// Drawn in place of the dragged view, which stays hidden in its cell.
+	private int mMeasuredChildSize = 0;	// Cell size the children were last measured at.
 	
 	public DragViewTabBar(Context context) {
 		super(context);
@@ -46,40 +44,91 @@ public class DragViewTabBar extends ViewGroup implements View.OnLongClickListene
 	private void init() {
 		// Calculate child size here
 		
-		mViewMap = new HashMap<Integer, View>();
+		mViewModel = new PositionModel<View>(4);
+		mLayoutEngine = new GridLayoutEngine();
+		mShiftAnimator = new ShiftAnimator(this, animTime);
+		mDragShadow = new DragShadow(this, animTime);
 		
+		// Only an estimate until the first measure.
 		Display display = ((SpringboardActivity) mContext).getWindowManager().getDefaultDisplay();
-		int screenWidth = display.getWidth();
-		mScreenHeight = display.getHeight();
-		mChildSize = (int) screenWidth / mColCount;
+		setViewportSize(display.getWidth(), display.getHeight());
 		
 		setOnLongClickListener(this);
 		
 	}
 	
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+		// Cells snap to the new geometry on the next onLayout().
+		setViewportSize(getMeasuredWidth(), getMeasuredHeight());
+		
+		// Children are only measured again when the cell size changed
+		// or when they asked for it themselves.
+		boolean sizeChanged = mMeasuredChildSize != mChildSize;
+		for (int i = 0; i < mViewModel.size(); i++) {
+			View child = mViewModel.get(i);
+			if (child == null || !(sizeChanged || child.isLayoutRequested())) continue;
+			if (sizeChanged) {
+				child.getLayoutParams().width = mChildSize;
+				child.getLayoutParams().height = mChildSize;
+			}
+			child.measure(MeasureSpec.makeMeasureSpec(child.getLayoutParams().width, MeasureSpec.UNSPECIFIED),
+                    MeasureSpec.makeMeasureSpec(child.getLayoutParams().height, MeasureSpec.UNSPECIFIED));
+			mViewModel.markDirty(i, i);
+		}
+		mMeasuredChildSize = mChildSize;
+	}
+	
+	private void setViewportSize(int width, int height) {
+		if (width <= 0 || height <= 0) return;
+		mChildSize = width / mColCount;
+		mViewportHeight = height;
+		// The tab bar is a single tray band without any grid cells.
+		if (mLayoutEngine.configure(mColCount, mChildSize, mViewportHeight, 0, mColCount)) {
+			mViewModel.markAllDirty();
+		}
+	}
+	
 	@Override
 	protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
 
-		Log.i(SpringboardActivity.LOGTAG, TAG + " - onLayout - changed: "+changed+" left: "+left+" top: "+top+" right: "+right+" bottom: "+bottom);
+		long traceStart = SpringboardTrace.ENABLED ? SpringboardTrace.begin() : 0;
 
-		for (int i = 0; i < getChildCount(); i++) {
-			
-			View child = mViewMap.get(i);
-			Point xy = getCoordinatesFromPosition(i);
-			child.measure(MeasureSpec.makeMeasureSpec(child.getLayoutParams().width, MeasureSpec.UNSPECIFIED),
-                    MeasureSpec.makeMeasureSpec(child.getLayoutParams().height, MeasureSpec.UNSPECIFIED));
-			child.layout(xy.x, xy.y, xy.x + mChildSize, xy.y + mChildSize);
+		if (changed) {
+			mShiftAnimator.endAll();
+			mViewModel.markAllDirty();
 		}
-		invalidate();
+		// Only positions added or moved since the last pass are laid out.
+		if (mViewModel.isDirty()) {
+			int last = mViewModel.getDirtyEnd();
+			for (int i = mViewModel.getDirtyStart(); i <= last; i++) {
+				View child = mViewModel.get(i);
+				if (child == null || (mDraggedItem >= 0 && child == mDraggedView)) continue;
+				if (mShiftAnimator.isAnimating(child)) continue;
+				int cellLeft = mLayoutEngine.getLeft(i);
+				int cellTop = mLayoutEngine.getTop(i);
+				child.layout(cellLeft, cellTop, cellLeft + mChildSize, cellTop + mChildSize);
+				if (SpringboardTrace.ENABLED) SpringboardTrace.count(SpringboardTrace.COUNT_LAYOUT_CHILD);
+			}
+			mViewModel.clearDirty();
+		}
+		
+		if (SpringboardTrace.ENABLED) SpringboardTrace.end(SpringboardTrace.LAYOUT, traceStart);
+	}
+	
+	@Override
+	protected void dispatchDraw(Canvas canvas) {
+		super.dispatchDraw(canvas);
+		mDragShadow.draw(canvas);
 	}
 	
 	@Override
 	protected boolean addViewInLayout(View child, int index, LayoutParams params) {
-		Log.i(SpringboardActivity.LOGTAG, TAG + " - addViewInLayout index: "+index);
 		if (getChildCount() >= 4) {
 			return false;
 		}
-		mViewMap.put(index, child);
+		mViewModel.put(index < 0 ? mViewModel.size() : index, child);
 		return super.addViewInLayout(child, index, params);
 	}
 
@@ -103,27 +152,19 @@ public class DragViewTabBar extends ViewGroup implements View.OnLongClickListene
 					
 					int index = getIndexFromCoordinates(x, y);
 					if (index == mDraggedItem) break;
-					if (index == -1) index = mColCount-1;
+					if (index == -1 || index >= mViewModel.size()) index = mViewModel.size()-1;
 					
 					if (index < mDraggedItem) {
 						for (int i = index; i < mDraggedItem; i++) {
 							moveViewToPosition(i, i+1);
 						}
-						for (int i = mDraggedItem-1; i >= index; i--) {
-							View view = mViewMap.get(i);
-							mViewMap.put(i+1, view);
-						}
 					} else {
 						for (int i = index; i > mDraggedItem; i--) {
 							moveViewToPosition(i, i-1);
 						}
-						for (int i = mDraggedItem+1; i <= index; i++) {
-							View view = mViewMap.get(i);
-							mViewMap.put(i-1, view);
-						}
 					}
+					mViewModel.move(mDraggedItem, index);
 					
-					Log.i(SpringboardActivity.LOGTAG, TAG + " - onTouchEvent - ACTION_MOVE - mDraggedItem: "+mDraggedItem+" index: "+index);
 					mDraggedItem = index;
 				}
 				
@@ -137,12 +178,13 @@ public class DragViewTabBar extends ViewGroup implements View.OnLongClickListene
 				if (mDraggedItem >= 0) {
 					
 					int index = getIndexFromCoordinates(x, y);
-					if (index == -1) index = mColCount-1;
+					if (index == -1 || index >= mViewModel.size()) index = mViewModel.size()-1;
 					
-					Point xy = getCoordinatesFromPosition(index);
-					mDraggedView.layout(xy.x, xy.y, xy.x+mChildSize, xy.y+mChildSize);
-					mViewMap.put(index, mDraggedView);
-					mDraggedView.clearAnimation();
+					int cellLeft = mLayoutEngine.getLeft(index);
+					int cellTop = mLayoutEngine.getTop(index);
+					mDraggedView.layout(cellLeft, cellTop, cellLeft+mChildSize, cellTop+mChildSize);
+					mViewModel.move(mDraggedItem, index);
+					mDragShadow.stop();
 				}
 				mDraggedItem = -1;
 				break;
@@ -159,93 +201,39 @@ public class DragViewTabBar extends ViewGroup implements View.OnLongClickListene
 		if (index >= 0) {
 			// animate this item for enabling drag.
 			mTouchDownDragged = mDraggedItem = index;
-			mDraggedView = mViewMap.get(index);
+			mDraggedView = mViewModel.get(index);
+			mShiftAnimator.cancel(mDraggedView);
+			mDragShadow.start(mDraggedView);
 			setDraggedItemPosition(mTouchDownX, mTouchDownY);
-			animateDragged();
 		}
 		
-		Log.i(SpringboardActivity.LOGTAG, TAG + " - onLongClick - dragged item: "+mDraggedItem);
-		
 		return false;
 	}
 	
 	private void setDraggedItemPosition(int x, int y) {
 		int halfWidth = mChildSize/2;
-		mDraggedView.layout(x-halfWidth, y-halfWidth, x+halfWidth, y+halfWidth);
-		invalidate();
+		mDragShadow.moveTo(x-halfWidth, y-halfWidth);
 	}
 	
 	private final int animTime = 150;
-	private void animateDragged() {
-		AnimationSet animSet = new AnimationSet(true);
-		ScaleAnimation scale = new ScaleAnimation(.667f, 1, .667f, 1, mChildSize * 3 / 4, mChildSize * 3 / 4);
-		scale.setDuration(animTime);
-		AlphaAnimation alpha = new AlphaAnimation(1, .5f);
-		alpha.setDuration(animTime);
-		animSet.addAnimation(scale);
-		animSet.addAnimation(alpha);
-		animSet.setFillEnabled(true);
-		animSet.setFillAfter(true);
-		mDraggedView.clearAnimation();
-		mDraggedView.startAnimation(animSet);
-	}
 	
-	private void animateNavigation(View v, int fromPos, int toPos) {
-		Point oldXY = getCoordinatesFromPosition(fromPos);
-		Point newXY = getCoordinatesFromPosition(toPos);
-		Point oldOffset = new Point(oldXY.x - v.getLeft(), oldXY.y - v.getTop());
-		Point newOffset = new Point(newXY.x - v.getLeft(), newXY.y - v.getTop());
-		
-		TranslateAnimation translate = new TranslateAnimation(Animation.ABSOLUTE, oldOffset.x,
-															  Animation.ABSOLUTE, newOffset.x,
-															  Animation.ABSOLUTE, oldOffset.y,
-															  Animation.ABSOLUTE, newOffset.y);
-		translate.setDuration(animTime);
-		translate.setFillEnabled(true);
-		translate.setFillAfter(true);
-		v.clearAnimation();
-		v.startAnimation(translate);
+	private void animateNavigation(View v, int toPos) {
+		if (v == null) return;
+		mShiftAnimator.animateTo(v, mLayoutEngine.getLeft(toPos), mLayoutEngine.getTop(toPos));
 	}
 	
 	private void moveViewToPosition(int fromPos, int toPos) {
-		Log.i(SpringboardActivity.LOGTAG, TAG + " - moveViewToPosition - fromPos: "+fromPos+" toPos: "+toPos);
-		View swapView = mViewMap.get(fromPos);
+		View swapView = mViewModel.get(fromPos);
 //		Point xy = getCoordinatesFromPosition(toPos);
-		animateNavigation(swapView, fromPos, toPos);
+		animateNavigation(swapView, toPos);
 //		swapView.layout(xy.x, xy.y, xy.x+mChildSize, xy.y+mChildSize);
-		invalidate();
-	}
-	
-	private Point getCoordinatesFromPosition(int index) {
-		Point xy =  new Point();
-		
-		int col = index % mColCount;
-        int row = index / mColCount;
-//        Log.i(SpringboardActivity.LOGTAG, TAG + " - getCoordinatesFromPosition col: "+col+" row: "+row);
-        
-        int topMargin = mScreenHeight - mChildSize;
-        
-        xy.x = mChildSize * col;
-        xy.y = topMargin - 24 - 24;
-		
-		return xy;
 	}
 	
 	// Returns the index of the item that is being pressed based on the 
 	// co-ordinates of the touch position.
 	// Doesnt return index if one of the tab bar items is clicked.
 	private int getIndexFromCoordinates(int x, int y) {
-		
-		for (int i = 0; i < mColCount; i++) {
-			Point xy = getCoordinatesFromPosition(i);
-			if ((x > xy.x) && (x < (xy.x+mChildSize))) {
-				if ((y > xy.y) && (y < (xy.y+mChildSize))) {
-					return i;
-				}
-			}
-		}
-		
-		return -1;
+		return mLayoutEngine.getIndex(x, y);
 	}
 	
 	public int getChildSize() {
@@ -1,33 +1,167 @@
 package com.test.springboard;
 
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 
 import android.content.Context;
-import android.graphics.Point;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.database.DataSetObserver;
+import android.os.SystemClock;
+import android.support.v4.view.ViewCompat;
+import android.util.AttributeSet;
 import android.util.Log;
+import android.util.SparseArray;
 import android.view.Display;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewConfiguration;
 import android.view.ViewGroup;
-import android.view.animation.AlphaAnimation;
-import android.view.animation.Animation;
-import android.view.animation.AnimationSet;
-import android.view.animation.ScaleAnimation;
-import android.view.animation.TranslateAnimation;
+import android.view.WindowManager;
+import android.widget.ListAdapter;
+import android.widget.TextView;
 
-public class DraggableView extends ViewGroup implements View.OnLongClickListener {
+public class DraggableView extends ViewGroup implements View.OnLongClickListener, View.OnClickListener,
+		EditJournal.Editor {
+
+	/**
+	 * Creates and fills the cells of items passed to setItems().
+	 */
+	public interface ItemBinder {
+		View createView(SpringboardItem item);
+		void bindView(View view, SpringboardItem item);
+	}
+	
+	/**
+	 * Told about taps on a cell.
+	 */
+	public interface OnItemClickListener {
+		void onItemClick(int position, View view);
+	}
+	
+	/**
+	 * Told when a dragged item is dropped onto the middle of another item,
+	 * for example to group the two into a folder. The drag has been
+	 * applied to the order already, both positions are the current ones.
+	 */
+	public interface OnItemDropListener {
+		void onItemDropped(int position, int targetPosition);
+	}
+	
+	/**
+	 * Told when the cell size changes after cells were bound at the old
+	 * one, as when the first measure differs from the display estimate or
+	 * on rotation. The bound cells are bound again right after, so
+	 * anything sized from the cell size, such as icons, is updated here.
+	 */
+	public interface OnCellSizeChangeListener {
+		void onCellSizeChanged(int childSize);
+	}
 
 	private final String TAG = "DragView";
 	private Context mContext;
-	private int mColCount = 4;		// Indicates the max number of columns that can be used.
-	private int mChildSize;			// Indicates the size of each child item. Calculated based on screen width and max no. of columns.
+	private int mColCount = 4;		// Number of grid columns, see setColumnCount().
+	private int mChildSize;			// Width and height of a cell. Measured width divided by the column count.
 	private int mTouchDownX, mTouchDownY = 0;
-	private int mFullGridItemCount = 0;
-	private int mDraggedItem = -1;
-	private int mScreenHeight;
+	private int mFullGridItemCount = -1;	// Positions in the grid, the rest go to the tray. -1 puts all in the grid.
+	private int mViewportHeight;	// Measured height, the tray sits at its bottom.
 	private View mDraggedView;
+	private int mTouchSlop;
+	private int mLastMotionY;
+	private boolean mIsScrolling = false;	// Kept until the next down, a tap is only a tap if it did not scroll.
+	private boolean mDragStarted = false;	// Same for drags, the click still fires after one.
+	
+	private PositionModel<View> mGridModel;
+	private GridLayoutEngine mLayoutEngine;
+	private ShiftAnimator mShiftAnimator;
+	private DragShadow mDragShadow;		// Drawn in place of the dragged view, which stays hidden in its cell.
+	private DragSession mDragSession;		// Order shown while dragging, the model is only written on drop.
+	private ReorderListener mReorderListener;
+	private OnItemClickListener mOnItemClickListener;
+	private OnItemDropListener mOnItemDropListener;
+	private OnCellSizeChangeListener mOnCellSizeChangeListener;
+	private TouchTraceRecorder mTraceRecorder;
+	
+	// Cells populated through setItems(), keyed by item id.
+	private SparseArray<View> mItemViews = new SparseArray<View>();
+	private SparseArray<SpringboardItem> mBoundItems = new SparseArray<SpringboardItem>();
+	private ItemBinder mItemBinder;
+	private int mBoundChildSize;		// Cell size the cells were bound at.
+	
+	// Label filter. While a filter is set only the matching cells are shown,
+	// packed into the grid in model order, and drags are off.
+	private LabelIndex<View> mLabelIndex = new LabelIndex<View>();
+	private String mFilter;
+	private int[] mFilterPositions = new int[0];	// Filtered position -> model position.
+	private int[] mSpareFilterPositions = new int[0];
+	private int mFilterCount = 0;
+	private int[] mSlotPositions = new int[0];	// Label index slot -> model position.
+	
+	// Adapter mode. Only grid cells within the viewport plus BIND_MARGIN_ROWS
+	// rows above and below hold a view, everything else is null in mGridModel.
+	private static final int BIND_MARGIN_ROWS = 1;
+	private ListAdapter mAdapter;
+	private int[] mAdapterPositions = new int[0];	// Display position -> adapter position.
+	private CellRecycler mRecycler;
+	private CellFactory mCellFactory;
+	private int mFirstBound = 0;		// First grid position holding a bound view.
+	private int mLastBound = -1;		// Last grid position holding a bound view.
+	private int mMeasuredChildSize = 0;	// Cell size the children were last measured at.
+	private boolean mReflowPending = false;	// Geometry changed after the cells were laid out.
+	
+	// Drag input is collected per display frame and applied once per frame,
+	// so several moves arriving within one frame cause at most one reorder.
+	private int mPendingX, mPendingY;		// Latest touch position of the drag.
+	private int mPendingIndex = -1;			// Last cell the finger crossed, or -1.
+	private boolean mDragFrameScheduled = false;
+	private final Runnable mDragFrame = new Runnable() {
+		@Override
+		public void run() {
+			mDragFrameScheduled = false;
+			applyPendingDrag();
+			autoScrollStep();
+		}
+	};
+	
+	// Dropping onto items. With a drop listener set, hovering over the middle
+	// half of a cell marks it as drop target and holds the reorder, and after
+	// leaving a drop target the reorder waits DROP_DWELL_MS more, so a finger
+	// wavering at the edge of a drop target does not shuffle the cells.
+	private static final long DROP_DWELL_MS = 150;
+	private int mDropTarget = -1;			// Display position of the drop target, or -1.
+	private int mDwellFrom = -1;			// Drop target the finger left, -1 once the dwell is over.
+	private long mDwellStart;
+	private final Rect mDropHighlight = new Rect();
+	private final Paint mDropPaint = new Paint();
 	
-	private HashMap<Integer, View> mGridMap;
+	// Multi-select. In selection mode a tap toggles a cell, and a long press
+	// on a selected cell drags every selected cell as one block.
+	private boolean mSelectionMode = false;
+	private final HashSet<View> mSelected = new HashSet<View>();
+	private final Rect mSelectionRect = new Rect();
+	private final Paint mSelectionPaint = new Paint();
+	private int mBatchRank;		// Index of the pressed cell within the dragged block.
+	
+	// Positions touched by the undo or redo being replayed.
+	private int mEditFirst, mEditLast;
+	
+	// Edge auto-scroll while dragging, both derived from the cell size.
+	private int mEdgeScrollZone;		// Height of the zone at the top and bottom edge.
+	private int mMaxEdgeScrollStep;		// Pixels scrolled per frame right at the edge.
+	
+	private final DataSetObserver mDataSetObserver = new DataSetObserver() {
+		@Override
+		public void onChanged() {
+			resetAdapterViews();
+		}
+		
+		@Override
+		public void onInvalidated() {
+			resetAdapterViews();
+		}
+	};
 	
 	public DraggableView(Context context) {
 		super(context);
@@ -36,18 +170,38 @@ public class DraggableView extends ViewGroup implements View.OnLongClickListener
 		init();
 		Log.i(SpringboardActivity.LOGTAG, TAG + " - constructor");
 	}
+	
+	// Used when inflated from a layout, such as the pages of SpringboardPageFactory.
+	public DraggableView(Context context, AttributeSet attrs) {
+		super(context, attrs);
+		
+		mContext = context;
+		init();
+		Log.i(SpringboardActivity.LOGTAG, TAG + " - constructor");
+	}
 
 	private void init() {
 		// Calculate child size here
 		
-		mGridMap = new HashMap<Integer, View>();
+		mGridModel = new PositionModel<View>();
+		mLayoutEngine = new GridLayoutEngine();
+		mShiftAnimator = new ShiftAnimator(this, animTime);
+		mDragShadow = new DragShadow(this, animTime);
+		mDragSession = new DragSession();
+		mRecycler = new CellRecycler();
+		mTouchSlop = ViewConfiguration.get(mContext).getScaledTouchSlop();
 		
-		Display display = ((SpringboardActivity) mContext).getWindowManager().getDefaultDisplay();
-		int screenWidth = display.getWidth();
-		mScreenHeight = display.getHeight();
-		mChildSize = (int) screenWidth / mColCount;
+		// Only an estimate so cells created before the first measure get a
+		// sensible size, onMeasure() sets the real geometry.
+		Display display = ((WindowManager) mContext.getSystemService(Context.WINDOW_SERVICE)).getDefaultDisplay();
+		setViewportSize(display.getWidth(), display.getHeight());
+		mBoundChildSize = mChildSize;
+		
+		mDropPaint.setColor(0x40FFFFFF);
+		mSelectionPaint.setColor(0x4033B5E5);
 		
 		setOnLongClickListener(this);
+		setOnClickListener(this);
 		
 	}
 	
@@ -68,218 +222,1256 @@ public class DraggableView extends ViewGroup implements View.OnLongClickListener
 	 * @param params - params of the view to be added to DragView
 	 */
 	public void addViewToLayout(View child, int index, LayoutParams params) {
-		Log.i(SpringboardActivity.LOGTAG, TAG + " - addViewToLayout index: "+index);
-		mGridMap.put(index, child);
+		View replaced = mGridModel.get(index);
+		if (replaced != null) mLabelIndex.remove(replaced);
+		mGridModel.put(index, child);
+		mLabelIndex.put(child, getLabel(child));
+		updateGeometry();
 		addViewInLayout(child, index, params);
+		if (isFiltering()) applyFilter(true);
+	}
+	
+	/**
+	 * Indexes the label of the given cell again after it was renamed.
+	 */
+	public void refreshLabel(View child) {
+		if (mGridModel.indexOf(child) < 0) return;
+		mLabelIndex.put(child, getLabel(child));
+		if (isFiltering()) applyFilter(false);
+	}
+	
+	private CharSequence getLabel(View child) {
+		View label = child.findViewById(R.id.tvIcon);
+		return label instanceof TextView ? ((TextView) label).getText() : null;
+	}
+	
+	/**
+	 * Shows the given items in the given order. Items are matched to the
+	 * cells already shown by id, so calling this again with the same items
+	 * inflates, binds and lays out nothing. Only cells of new items are
+	 * created, cells of items no longer in the list are removed and cells
+	 * whose item changed are bound again. Not available in adapter mode.
+	 *
+	 * The new order is diffed against the current one. The largest set of
+	 * items that kept their relative order stays put, only shifting over
+	 * to close the gaps of removed items or to make room for new ones.
+	 * The other items really moved, those on screen shift over from their
+	 * old cell in one batch. Only cells whose position changed are laid
+	 * out again.
+	 * @param items - items to show, ids must be unique
+	 * @param binder - creates and binds the cells
+	 */
+	public void setItems(List<SpringboardItem> items, ItemBinder binder) {
+		if (mAdapter != null) throw new IllegalStateException("setItems() is not available in adapter mode");
+		if (mDragSession.isActive()) finishDrag(false);
+		mItemBinder = binder;
+		
+		int count = items.size();
+		SparseArray<SpringboardItem> newItems = new SparseArray<SpringboardItem>(count);
+		for (int i = 0; i < count; i++) {
+			SpringboardItem item = items.get(i);
+			newItems.put(item.getId(), item);
+		}
+		
+		IdentityHashMap<View, Integer> oldPositions = new IdentityHashMap<View, Integer>(getFullItemCount());
+		for (int i = 0; i < getFullItemCount(); i++) {
+			View view = mGridModel.get(i);
+			if (view != null) oldPositions.put(view, Integer.valueOf(i));
+		}
+		
+		boolean changed = false;
+		// Drop the cells of items that are gone.
+		for (int i = mItemViews.size() - 1; i >= 0; i--) {
+			int id = mItemViews.keyAt(i);
+			if (newItems.get(id) != null) continue;
+			View view = mItemViews.valueAt(i);
+			mShiftAnimator.cancel(view);
+			mLabelIndex.remove(view);
+			mSelected.remove(view);
+			removeViewInLayout(view);
+			mItemViews.delete(id);
+			mBoundItems.delete(id);
+			changed = true;
+		}
+		
+		// Old position of the item now at each position, -1 for new items.
+		int[] previous = new int[count];
+		for (int i = 0; i < count; i++) {
+			Integer oldPosition = oldPositions.get(mItemViews.get(items.get(i).getId()));
+			previous[i] = oldPosition != null ? oldPosition.intValue() : -1;
+		}
+		boolean[] stable = new boolean[count];
+		PositionModel.markLongestIncreasing(previous, count, stable);
+		
+		int[] moved = new int[count];
+		int movedCount = 0;
+		for (int i = 0; i < count; i++) {
+			SpringboardItem item = items.get(i);
+			View view = mItemViews.get(item.getId());
+			if (view == null) {
+				view = binder.createView(item);
+				binder.bindView(view, item);
+				LayoutParams params = view.getLayoutParams();
+				if (params == null) params = new LayoutParams(mChildSize, mChildSize);
+				addViewInLayout(view, -1, params, true);
+				mItemViews.put(item.getId(), view);
+				mBoundItems.put(item.getId(), item);
+				mLabelIndex.put(view, item.getLabel());
+			} else if (!item.equals(mBoundItems.get(item.getId()))) {
+				binder.bindView(view, item);
+				mBoundItems.put(item.getId(), item);
+				mLabelIndex.put(view, item.getLabel());
+			}
+			if (mGridModel.get(i) != view) {
+				mGridModel.put(i, view);
+				changed = true;
+				if (previous[i] >= 0 && !stable[i]) {
+					moved[movedCount++] = i;
+				} else {
+					mShiftAnimator.cancel(view);
+				}
+			}
+		}
+		if (mGridModel.size() != count) {
+			mGridModel.setSize(count);
+			changed = true;
+		}
+		
+		if (changed) {
+			updateGeometry();
+			if (isFiltering()) {
+				applyFilter(true);
+			} else {
+				animateMovedCells(moved, movedCount);
+			}
+			requestLayout();
+		}
+	}
+	
+	// Shifts the moved cells that are on screen before or after the move
+	// over from where they are, the others are left to layoutDirtyCells().
+	private void animateMovedCells(int[] positions, int count) {
+		mShiftAnimator.beginBatch();
+		for (int k = 0; k < count; k++) {
+			int position = positions[k];
+			View child = mGridModel.get(position);
+			if (isOnScreen(child.getTop(), child.getHeight()) || isOnScreen(getCellTop(position), mChildSize)) {
+				animateNavigation(child, position);
+			} else {
+				mShiftAnimator.cancel(child);
+			}
+		}
+		mShiftAnimator.endBatch();
+	}
+	
+	// Whether a cell spanning the given content rows shows in the viewport.
+	private boolean isOnScreen(int top, int height) {
+		return top < getScrollY() + getHeight() && top + height > getScrollY();
+	}
+	
+	/**
+	 * Shows only the cells whose label contains the query, ignoring case,
+	 * packed into the grid in their current order. Typing refines the
+	 * previous result, each call lays out only the cells whose filtered
+	 * position changed. Null or an empty query shows every cell again.
+	 * Not available in adapter mode.
+	 * @param query - text to look for in the labels, or null
+	 */
+	public void setFilter(CharSequence query) {
+		if (mAdapter != null) throw new IllegalStateException("setFilter() is not available in adapter mode");
+		String filter = query != null && query.length() > 0 ? query.toString() : null;
+		if (filter == null) {
+			if (isFiltering()) clearFilter();
+			return;
+		}
+		if (filter.equals(mFilter)) return;
+		if (mDragSession.isActive()) finishDrag(false);
+		boolean starting = !isFiltering();
+		mFilter = filter;
+		applyFilter(starting);
+	}
+	
+	public boolean isFiltering() {
+		return mFilter != null;
+	}
+	
+	// Shows the cells matching mFilter and hides the rest. The label index
+	// is kept in model order, so its matches are read straight into the
+	// filtered positions. Only cells entering or leaving the result are
+	// shown or hidden, and only matching cells whose filtered position
+	// changed are laid out. When the filter starts or the cells changed
+	// the index is put in model order again and every cell is looked at.
+	private void applyFilter(boolean modelChanged) {
+		long traceStart = SpringboardTrace.ENABLED ? SpringboardTrace.begin() : 0;
+		
+		if (modelChanged) arrangeLabelIndex();
+		int count = mLabelIndex.query(mFilter);
+		int[] positions = mSpareFilterPositions.length >= count ? mSpareFilterPositions : new int[getFullItemCount()];
+		for (int i = 0; i < count; i++) {
+			positions[i] = mSlotPositions[mLabelIndex.getMatchSlot(i)];
+		}
+		
+		int[] previous = mFilterPositions;
+		int previousCount = mFilterCount;
+		if (modelChanged) {
+			showMatchingCells(positions, count);
+		} else {
+			showChangedCells(previous, previousCount, positions, count);
+		}
+		mSpareFilterPositions = previous;
+		mFilterPositions = positions;
+		mFilterCount = count;
+		// Read before updateGeometry(), a new match count marks every cell dirty
+		// but leaves the origins of the filtered positions as they were.
+		boolean dirty = mGridModel.isDirty();
+		int dirtyStart = mGridModel.getDirtyStart();
+		int dirtyEnd = mGridModel.getDirtyEnd();
+		updateGeometry();
+		for (int i = 0; i < count; i++) {
+			int position = positions[i];
+			// Cells keeping their filtered position are only laid out if they were just bound.
+			boolean rebound = dirty && position >= dirtyStart && position <= dirtyEnd;
+			if (i < previousCount && previous[i] == position && !rebound) continue;
+			View child = mGridModel.get(position);
+			mShiftAnimator.cancel(child);
+			layoutChildAt(child, i);
+		}
+		mGridModel.clearDirty();
+		scrollGridBy(0);
+		
+		if (SpringboardTrace.ENABLED) SpringboardTrace.end(SpringboardTrace.LAYOUT, traceStart);
+	}
+	
+	// Puts the label index in model order and notes the model position of
+	// every slot.
+	private void arrangeLabelIndex() {
+		int size = getFullItemCount();
+		if (mSlotPositions.length < size) mSlotPositions = new int[size];
+		int slot = 0;
+		for (int i = 0; i < size; i++) {
+			View child = mGridModel.get(i);
+			if (child == null) continue;
+			mLabelIndex.moveToSlot(child, slot);
+			mSlotPositions[slot++] = i;
+		}
+	}
+	
+	// Sets the visibility of every cell, positions holds the matching ones
+	// in model order.
+	private void showMatchingCells(int[] positions, int count) {
+		int k = 0;
+		for (int i = 0; i < getFullItemCount(); i++) {
+			View child = mGridModel.get(i);
+			if (child == null) continue;
+			boolean match = k < count && positions[k] == i;
+			if (match) k++;
+			setCellVisibility(child, match ? VISIBLE : INVISIBLE);
+		}
+	}
+	
+	// Walks the previous and the new matches side by side, both are in
+	// model order, and shows or hides the cells in only one of them.
+	private void showChangedCells(int[] previous, int previousCount, int[] positions, int count) {
+		int p = 0;
+		int k = 0;
+		while (p < previousCount || k < count) {
+			int was = p < previousCount ? previous[p] : Integer.MAX_VALUE;
+			int is = k < count ? positions[k] : Integer.MAX_VALUE;
+			if (was == is) {
+				p++;
+				k++;
+			} else if (was < is) {
+				setCellVisibility(mGridModel.get(was), INVISIBLE);
+				p++;
+			} else {
+				setCellVisibility(mGridModel.get(is), VISIBLE);
+				k++;
+			}
+		}
+	}
+	
+	private void setCellVisibility(View child, int visibility) {
+		if (child.getVisibility() != visibility) child.setVisibility(visibility);
+	}
+	
+	private void clearFilter() {
+		mFilter = null;
+		mFilterCount = 0;
+		for (int i = 0; i < getFullItemCount(); i++) {
+			View child = mGridModel.get(i);
+			if (child != null && child.getVisibility() != VISIBLE) child.setVisibility(VISIBLE);
+		}
+		updateGeometry();
+		mGridModel.markAllDirty();
+		layoutDirtyCells();
+		scrollGridBy(0);
+	}
+	
+	/**
+	 * Sets the number of grid columns. The cell size follows from the
+	 * width, every icon moves to its new cell on the next layout.
+	 */
+	public void setColumnCount(int colCount) {
+		if (colCount < 1 || colCount == mColCount) return;
+		mColCount = colCount;
+		requestLayout();
+	}
+	
+	public int getColumnCount() {
+		return mColCount;
 	}
 	
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+		
+		// Rotation, a resize and a new column count all end up here. Cells
+		// laid out before are reflowed by the next onLayout().
+		if (setViewportSize(getMeasuredWidth(), getMeasuredHeight()) && getWidth() > 0) {
+			mReflowPending = true;
+		}
+		
+		// Children are only measured again when the cell size changed
+		// or when they asked for it themselves.
+		boolean sizeChanged = mMeasuredChildSize != mChildSize;
+		for (int i = 0; i < getFullItemCount(); i++) {
+			View child = mGridModel.get(i);
+			if (child == null || !(sizeChanged || child.isLayoutRequested())) continue;
+			if (sizeChanged) setCellSize(child);
+			measureCell(child);
+			mGridModel.markDirty(i, i);
+		}
+		mMeasuredChildSize = mChildSize;
+		
+		// Cells were bound for another size, bind them again once this
+		// layout pass is done.
+		if (mChildSize != mBoundChildSize) {
+			removeCallbacks(mRebindCells);
+			post(mRebindCells);
+		}
+	}
+	
+	// Binds every bound cell again at the current cell size.
+	private final Runnable mRebindCells = new Runnable() {
+		@Override
+		public void run() {
+			if (mChildSize == mBoundChildSize) return;
+			mBoundChildSize = mChildSize;
+			if (mOnCellSizeChangeListener != null) mOnCellSizeChangeListener.onCellSizeChanged(mChildSize);
+			if (mAdapter != null) {
+				rebindAdapterCells();
+			} else if (mItemBinder != null) {
+				for (int i = 0; i < mItemViews.size(); i++) {
+					mItemBinder.bindView(mItemViews.valueAt(i), mBoundItems.get(mItemViews.keyAt(i)));
+				}
+			}
+			requestLayout();
+		}
+	};
+	
 	@Override
 	protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
 
-		Log.i(SpringboardActivity.LOGTAG, TAG + " - onLayout - changed: "+changed+" left: "+left+" top: "+top+" right: "+right+" bottom: "+bottom);
+		long traceStart = SpringboardTrace.ENABLED ? SpringboardTrace.begin() : 0;
 
-		for (int i = 0; i < getFullItemCount(); i++) {
-			View child = mGridMap.get(i);
-			Point xy = getCoordinatesFromPosition(i);
-			child.measure(MeasureSpec.makeMeasureSpec(child.getLayoutParams().width, MeasureSpec.UNSPECIFIED),
-                    MeasureSpec.makeMeasureSpec(child.getLayoutParams().height, MeasureSpec.UNSPECIFIED));
-			child.layout(xy.x, xy.y, xy.x + mChildSize, xy.y + mChildSize);
+		if (mReflowPending) {
+			reflowCells();
+		} else if (changed) {
+			mShiftAnimator.endAll();
+			mGridModel.markAllDirty();
+		}
+		if (mAdapter != null) bindVisibleCells();
+		layoutDirtyCells();
+		
+		if (SpringboardTrace.ENABLED) SpringboardTrace.end(SpringboardTrace.LAYOUT, traceStart);
+	}
+	
+	@Override
+	protected void dispatchDraw(Canvas canvas) {
+		super.dispatchDraw(canvas);
+		if (!mSelected.isEmpty()) {
+			for (View child : mSelected) {
+				if (child.getVisibility() != VISIBLE) continue;
+				mSelectionRect.set(child.getLeft(), child.getTop(), child.getRight(), child.getBottom());
+				canvas.drawRect(mSelectionRect, mSelectionPaint);
+			}
+		}
+		if (mDropTarget >= 0) canvas.drawRect(mDropHighlight, mDropPaint);
+		mDragShadow.draw(canvas);
+	}
+	
+	// Lays out only the positions that were added, rebound or moved since
+	// the last pass. Views still shifting or being dragged are skipped, their
+	// final position is set by the animator or on drop. During a drag cells
+	// go to the display position the drag session maps them to.
+	private void layoutDirtyCells() {
+		if (!mGridModel.isDirty()) return;
+		if (isFiltering()) {
+			// Filtered positions do not follow model positions, lay them all out.
+			for (int i = 0; i < mFilterCount; i++) {
+				layoutChildAt(mGridModel.get(mFilterPositions[i]), i);
+			}
+			mGridModel.clearDirty();
+			return;
+		}
+		int last = mGridModel.getDirtyEnd();
+		for (int i = mGridModel.getDirtyStart(); i <= last; i++) {
+			View child = mGridModel.get(i);
+			if (child == null || isDraggedView(child)) continue;
+			if (mShiftAnimator.isAnimating(child)) continue;
+			layoutChildAt(child, mDragSession.toDisplayPosition(i));
+		}
+		mGridModel.clearDirty();
+	}
+	
+	// Moves every cell to where the new geometry puts it in one batch. Cells
+	// inside the viewport before or after take their new size in place and
+	// shift from there, all starting together. The others, usually most of
+	// them, are only laid out at their new cell.
+	private void reflowCells() {
+		mShiftAnimator.endAll();
+		scrollGridBy(0);
+		int count = isFiltering() ? mFilterCount : getFullItemCount();
+		
+		mShiftAnimator.beginBatch();
+		for (int i = 0; i < count; i++) {
+			int modelPosition = isFiltering() ? mFilterPositions[i] : mDragSession.toModelPosition(i);
+			View child = mGridModel.get(modelPosition);
+			if (child == null || isDraggedView(child)) continue;
+			int fromLeft = child.getLeft();
+			int fromTop = child.getTop();
+			int toLeft = mLayoutEngine.getLeft(i);
+			int toTop = getCellTop(i);
+			boolean visible = isOnScreen(fromTop, child.getHeight()) || isOnScreen(toTop, mChildSize);
+			if (visible && (fromLeft != toLeft || fromTop != toTop)) {
+				child.layout(fromLeft, fromTop, fromLeft + mChildSize, fromTop + mChildSize);
+				mShiftAnimator.animateTo(child, toLeft, toTop);
+			} else {
+				layoutChildAt(child, i);
+			}
+		}
+		mShiftAnimator.endBatch();
+		mGridModel.clearDirty();
+		mReflowPending = false;
+		
+		if (mAdapter != null) {
+			bindVisibleCells();
+			layoutDirtyCells();
 		}
-		invalidate();
+	}
+	
+	private void measureCell(View child) {
+		child.measure(MeasureSpec.makeMeasureSpec(child.getLayoutParams().width, MeasureSpec.UNSPECIFIED),
+                MeasureSpec.makeMeasureSpec(child.getLayoutParams().height, MeasureSpec.UNSPECIFIED));
+	}
+	
+	private void layoutChildAt(View child, int position) {
+		int cellLeft = mLayoutEngine.getLeft(position);
+		int cellTop = getCellTop(position);
+		child.layout(cellLeft, cellTop, cellLeft + mChildSize, cellTop + mChildSize);
+		if (SpringboardTrace.ENABLED) SpringboardTrace.count(SpringboardTrace.COUNT_LAYOUT_CHILD);
+	}
+	
+	// Grid cells scroll with the content, tray cells stay pinned
+	// to the bottom of the viewport.
+	private int getCellTop(int position) {
+		int top = mLayoutEngine.getTop(position);
+		return mLayoutEngine.isTray(position) ? top + getScrollY() : top;
 	}
 	
 	@Override
 	public boolean onTouchEvent(MotionEvent event) {
 		
+		long traceStart = SpringboardTrace.ENABLED ? SpringboardTrace.begin() : 0;
+		boolean wasDragging = mDragSession.isActive();
+		if (mTraceRecorder != null) mTraceRecorder.record(event);
+		
 		switch (event.getAction()) {
 			case MotionEvent.ACTION_DOWN: {
 				mTouchDownX = (int) event.getX();
 				mTouchDownY = (int) event.getY();
+				mLastMotionY = mTouchDownY;
+				mIsScrolling = false;
+				mDragStarted = false;
 				break;
 			}
 			case MotionEvent.ACTION_MOVE: {
 				int x = (int) event.getX();
 				int y = (int) event.getY();
 				
-				if (mDraggedItem >= 0) {
-					setDraggedItemPosition(x, y);
-					int index = getIndexFromCoordinates(x, y);
-					if (index == mDraggedItem || index < 0) break;
-					
-					if (index < mDraggedItem) {
-						for (int i = index; i < mDraggedItem; i++) {
-							moveViewToPosition(i, i+1);
-						}
-						for (int i = mDraggedItem-1; i >= index; i--) {
-							View view = mGridMap.get(i);
-							mGridMap.put(i+1, view);
-						}
-					} else {
-						for (int i = index; i > mDraggedItem; i--) {
-							moveViewToPosition(i, i-1);
-						}
-						for (int i = mDraggedItem+1; i <= index; i++) {
-							View view = mGridMap.get(i);
-							mGridMap.put(i-1, view);
-						}
+				if (!mDragSession.isActive()) {
+					// Not dragging, scroll the grid if it is taller than the viewport.
+					if (!mIsScrolling && Math.abs(y - mTouchDownY) > mTouchSlop && getMaxScrollY() > 0) {
+						mIsScrolling = true;
+						cancelLongPress();
+						disallowParentIntercept();
 					}
-//					Log.i(SpringboardActivity.LOGTAG, TAG + " - onTouchEvent - ACTION_MOVE - mDraggedItem: "+mDraggedItem+" index: "+index);
-					mGridMap.put(index, mDraggedView);
-					mDraggedItem = index;
+					if (mIsScrolling) scrollGridBy(mLastMotionY - y);
+					mLastMotionY = y;
+				}
+				
+				if (mDragSession.isActive()) {
+					collectDragInput(event);
+					scheduleDragFrame();
 				}
 				break;
 			}
-			case MotionEvent.ACTION_UP: {
-				if (mDraggedItem >= 0) {
-					Point xy = getCoordinatesFromPosition(mDraggedItem);
-					mDraggedView.layout(xy.x, xy.y, xy.x+mChildSize, xy.y+mChildSize);
-					mDraggedView.clearAnimation();
+			case MotionEvent.ACTION_UP:
+			case MotionEvent.ACTION_CANCEL: {
+				if (mDragSession.isActive()) {
+					if (event.getAction() == MotionEvent.ACTION_UP) {
+						// Apply whatever input the pending frame has not handled yet.
+						collectDragInput(event);
+						applyPendingDrag();
+						finishDrag(true);
+					} else {
+						finishDrag(false);
+					}
+				}
+				// Cells kept bound for the drag can be recycled now.
+				if (mAdapter != null) {
+					bindVisibleCells();
+					layoutDirtyCells();
 				}
-				mDraggedItem = -1;
 				break;
 			}
 		}
 		
+		if (SpringboardTrace.ENABLED && (wasDragging || mDragSession.isActive())) {
+			SpringboardTrace.end(SpringboardTrace.TOUCH, traceStart);
+		}
 		return super.onTouchEvent(event);
 		
 	}
 	
+	@Override
+	public void onClick(View v) {
+		if (mIsScrolling || mDragStarted) return;
+		int index = getIndexFromCoordinates(mTouchDownX, mTouchDownY);
+		if (isFiltering()) index = index >= 0 && index < mFilterCount ? mFilterPositions[index] : -1;
+		View child = index >= 0 ? mGridModel.get(index) : null;
+		if (child == null) return;
+		if (mSelectionMode) {
+			if (!mSelected.remove(child)) mSelected.add(child);
+			invalidate(child.getLeft(), child.getTop(), child.getRight(), child.getBottom());
+		} else if (mOnItemClickListener != null) {
+			mOnItemClickListener.onItemClick(index, child);
+		}
+	}
+	
 	@Override
 	public boolean onLongClick(View v) {
 		
+		if (mTraceRecorder != null) mTraceRecorder.markLongClick(SystemClock.uptimeMillis());
+		if (isFiltering()) return false;
 		int index = getIndexFromCoordinates(mTouchDownX, mTouchDownY);
 		if (index >= 0) {
 			// animate this item for enabling drag.
-			mDraggedItem = index;
-			mDraggedView = mGridMap.get(index);
+			mDragStarted = true;
+			mDraggedView = mGridModel.get(index);
+			mShiftAnimator.cancel(mDraggedView);
+			mPendingIndex = -1;
+			mDwellFrom = -1;
+			mDragShadow.start(mDraggedView);
+			if (mSelected.size() > 1 && mSelected.contains(mDraggedView)) {
+				beginBatchDrag(index);
+			} else {
+				mDragSession.begin(index);
+			}
 			setDraggedItemPosition(mTouchDownX, mTouchDownY);
-			animateDragged();
+			disallowParentIntercept();
 		}
 		
-		Log.i(SpringboardActivity.LOGTAG, TAG + " - onLongClick - dragged item: "+mDraggedItem+" gridViewCount: "+getGridViewCount());
-		
 		return false;
 	}
 	
-	private void setDraggedItemPosition(int x, int y) {
-		int halfWidth = mChildSize/2;
-		mDraggedView.layout(x-halfWidth, y-halfWidth, x+halfWidth, y+halfWidth);
-		invalidate();
+	// Starts dragging every selected cell as one block, the pressed one
+	// under the finger. The others hide behind the shadow and the rest of
+	// the cells close up around the block right away.
+	private void beginBatchDrag(int index) {
+		int[] positions = new int[mSelected.size()];
+		int count = 0;
+		for (int i = 0; i < getFullItemCount(); i++) {
+			View child = mGridModel.get(i);
+			if (child == null || !mSelected.contains(child)) continue;
+			if (i == index) mBatchRank = count;
+			positions[count++] = i;
+			if (child != mDraggedView) {
+				mShiftAnimator.cancel(child);
+				child.setVisibility(INVISIBLE);
+			}
+		}
+		int target = getBatchTarget(index, count);
+		mDragSession.beginBatch(positions, count, target);
+		mDragShadow.setStackCount(count);
+		animateDisplayRange(Math.min(positions[0], target), Math.max(positions[count - 1], target + count - 1));
 	}
 	
-	private final int animTime = 150;
-	private void animateDragged() {
-		AnimationSet animSet = new AnimationSet(true);
-		ScaleAnimation scale = new ScaleAnimation(.667f, 1, .667f, 1, mChildSize * 3 / 4, mChildSize * 3 / 4);
-		scale.setDuration(animTime);
-		AlphaAnimation alpha = new AlphaAnimation(1, .5f);
-		alpha.setDuration(animTime);
-		animSet.addAnimation(scale);
-		animSet.addAnimation(alpha);
-		animSet.setFillEnabled(true);
-		animSet.setFillAfter(true);
-		mDraggedView.clearAnimation();
-		mDraggedView.startAnimation(animSet);
-	}
-	
-	private void animateNavigation(View v, int fromPos, int toPos) {
-		Point oldXY = getCoordinatesFromPosition(fromPos);
-		Point newXY = getCoordinatesFromPosition(toPos);
-		if (v == null) Log.i(SpringboardActivity.LOGTAG, "animateNavigation - v is NULL, fromPos: "+fromPos+" toPos: "+toPos);
-		Point oldOffset = new Point(oldXY.x - v.getLeft(), oldXY.y - v.getTop());
-		Point newOffset = new Point(newXY.x - v.getLeft(), newXY.y - v.getTop());
-		
-		TranslateAnimation translate = new TranslateAnimation(Animation.ABSOLUTE, oldOffset.x,
-															  Animation.ABSOLUTE, newOffset.x,
-															  Animation.ABSOLUTE, oldOffset.y,
-															  Animation.ABSOLUTE, newOffset.y);
-		translate.setDuration(animTime);
-		translate.setFillEnabled(true);
-		translate.setFillAfter(true);
-		v.clearAnimation();
-		v.startAnimation(translate);
-	}
-	
-	/*private void swapViews(int toPos) {
-		Log.i(SpringboardActivity.LOGTAG, TAG + " - swapViews - draggedItem: "+mDraggedItem+" toPos: "+toPos+" mPreviousSwapPosition: "+mPreviousSwapPosition);
-		if (mPreviousSwapPosition != -1) {
-			moveViewToPosition(mDraggedItem, mPreviousSwapPosition);
-			if (mDraggedItem < getGridViewCount()) {
-				swapTwoViewsInMap(mPreviousSwapPosition, mDraggedItem);
-			} else {
-				swapTwoViewsInMap(mDraggedItem-getGridViewCount(), mPreviousSwapPosition);
-			}
-		} else {
-			moveViewToPosition(mDraggedItem, toPos);
+	// Display position the dragged block starts at when the pressed cell
+	// is shown at index, kept inside the item range.
+	private int getBatchTarget(int index, int count) {
+		return Math.max(0, Math.min(index - mBatchRank, getFullItemCount() - count));
+	}
+	
+	private boolean isBatchDrag() {
+		return mDragSession.getKind() == DragSession.KIND_BATCH;
+	}
+	
+	// Shifts the cells shown between first and last to where the drag
+	// session now shows them, all starting in the same frame. The dragged
+	// cells are left alone.
+	private void animateDisplayRange(int first, int last) {
+		boolean batch = isBatchDrag();
+		mShiftAnimator.beginBatch();
+		for (int i = first; i <= last; i++) {
+			View child = mGridModel.get(mDragSession.toModelPosition(i));
+			if (child == null || child == mDraggedView) continue;
+			if (batch && mSelected.contains(child)) continue;
+			animateNavigation(child, i);
 		}
-		moveViewToPosition(toPos, mDraggedItem);
-		if (mDraggedItem < getGridViewCount()) {
-			// swap from grid map to tray map
-			int trayPos = toPos - getGridViewCount();
-			swapTwoViewsInMap(trayPos, mDraggedItem);
-		} else {
-			// swap from tray map to grid map
-			int trayPos = mDraggedItem - getGridViewCount();
-			swapTwoViewsInMap(trayPos, toPos);
-		}
-		mPreviousSwapPosition = toPos;
-	}*/
-	
-	/*private void swapTwoViewsInMap(int trayPos, int gridPos) {
-		View view = mTrayMap.get(trayPos);
-		mTrayMap.put(trayPos, mGridMap.get(gridPos));
-		mGridMap.put(gridPos, view);
-	}*/
-	
-	private void moveViewToPosition(int fromPos, int toPos) {
-//		Log.i(SpringboardActivity.LOGTAG, TAG + " - moveViewToPosition - fromPos: "+fromPos+" toPos: "+toPos);
-		View view = mGridMap.get(fromPos);
-		animateNavigation(view, fromPos, toPos);
-		invalidate();
-	}
-	
-	private Point getCoordinatesFromPosition(int index) {
-		Point xy =  new Point();
-		int col = index % mColCount;
-        int row = index / mColCount;
-        
-		if (index < getGridViewCount()) {
-			xy.x = mChildSize * col;
-	        xy.y = mChildSize * row;
-		} else {
-			xy.x = mChildSize * (index - getGridViewCount());
-			int topMargin = mScreenHeight - mChildSize;
-			xy.y = topMargin - 24 - 24;
-			Log.i(SpringboardActivity.LOGTAG, "getCoordinatesFromPosition - index: "+index+" xy.x: "+xy.x+" xy.y: "+xy.y);
+		mShiftAnimator.endBatch();
+	}
+	
+	// Records the latest drag position and the last cell the finger crossed.
+	// When the newest sample lies outside every cell, the batched historical
+	// samples are walked back so a fast swipe still lands on the last cell
+	// it actually passed over.
+	private void collectDragInput(MotionEvent event) {
+		mPendingX = (int) event.getX();
+		mPendingY = (int) event.getY();
+		int index = getIndexFromCoordinates(mPendingX, mPendingY);
+		for (int h = event.getHistorySize() - 1; index < 0 && h >= 0; h--) {
+			index = getIndexFromCoordinates((int) event.getHistoricalX(h), (int) event.getHistoricalY(h));
+		}
+		if (index >= 0) mPendingIndex = index;
+	}
+	
+	private void scheduleDragFrame() {
+		if (mDragFrameScheduled) return;
+		mDragFrameScheduled = true;
+		ViewCompat.postOnAnimation(this, mDragFrame);
+	}
+	
+	// Moves the dragged view to the latest touch position and reorders
+	// straight to the latest target cell, skipping the cells in between.
+	// While the reorder is held for a drop target the target cell is kept
+	// pending, and reordered to once the hold is over.
+	private void applyPendingDrag() {
+		if (!mDragSession.isActive()) return;
+		setDraggedItemPosition(mPendingX, mPendingY);
+		
+		if (mOnItemDropListener != null && !isBatchDrag() && !resolveHover()) return;
+		int index = mPendingIndex;
+		mPendingIndex = -1;
+		if (index >= 0 && isBatchDrag()) index = getBatchTarget(index, mDragSession.getBatchCount());
+		if (index < 0 || index == mDragSession.getTarget()) return;
+		
+		long reorderStart = SpringboardTrace.ENABLED ? SpringboardTrace.begin() : 0;
+		retargetDrag(index);
+		if (SpringboardTrace.ENABLED) SpringboardTrace.end(SpringboardTrace.REORDER, reorderStart);
+	}
+	
+	// Marks the cell under the finger as drop target while the finger is
+	// over its middle and returns false while the reorder has to wait:
+	// over a drop target, and for DROP_DWELL_MS after leaving one. Frames
+	// keep coming while a dwell is running so the reorder happens even if
+	// the finger stops moving.
+	private boolean resolveHover() {
+		int index = getIndexFromCoordinates(mPendingX, mPendingY);
+		if (index >= 0 && index != mDragSession.getTarget()
+				&& isInDropZone(index, mPendingX, mPendingY + getScrollY())) {
+			setDropTarget(index);
+			mDwellFrom = -1;
+			return false;
+		}
+		if (mDropTarget >= 0) {
+			mDwellFrom = mDropTarget;
+			mDwellStart = SystemClock.uptimeMillis();
+			setDropTarget(-1);
+		}
+		if (mDwellFrom < 0) return true;
+		if (SystemClock.uptimeMillis() - mDwellStart < DROP_DWELL_MS) {
+			scheduleDragFrame();
+			return false;
+		}
+		mDwellFrom = -1;
+		return true;
+	}
+	
+	// x and y are content coordinates.
+	private boolean isInDropZone(int position, int x, int y) {
+		int quarter = mChildSize / 4;
+		int cellLeft = mLayoutEngine.getLeft(position);
+		int cellTop = getCellTop(position);
+		return x >= cellLeft + quarter && x < cellLeft + mChildSize - quarter
+				&& y >= cellTop + quarter && y < cellTop + mChildSize - quarter;
+	}
+	
+	private void setDropTarget(int position) {
+		if (position == mDropTarget) return;
+		if (mDropTarget >= 0) invalidate(mDropHighlight);
+		mDropTarget = position;
+		if (position < 0) return;
+		int cellLeft = mLayoutEngine.getLeft(position);
+		int cellTop = getCellTop(position);
+		mDropHighlight.set(cellLeft, cellTop, cellLeft + mChildSize, cellTop + mChildSize);
+		invalidate(mDropHighlight);
+	}
+	
+	// Scrolls the grid one step while the drag hovers near the top or bottom
+	// edge and schedules the next step for the next frame, so scrolling goes
+	// on while the finger rests in the edge zone. The content moves under the
+	// finger, so the target cell is hit tested again after every step.
+	private void autoScrollStep() {
+		if (!mDragSession.isActive()) return;
+		int step = getEdgeScrollStep(mPendingY);
+		if (step == 0) return;
+		int scrollY = getScrollY();
+		scrollGridBy(step);
+		if (getScrollY() == scrollY) return;
+		
+		int index = getIndexFromCoordinates(mPendingX, mPendingY);
+		if (index >= 0) mPendingIndex = index;
+		applyPendingDrag();
+		scheduleDragFrame();
+	}
+	
+	// Returns the scroll step for a drag at the given touch y, proportional
+	// to how deep into the edge zone it is, or 0 outside the zones. A drag
+	// over the pinned tray does not scroll.
+	private int getEdgeScrollStep(int y) {
+		if (mEdgeScrollZone <= 0) return 0;
+		int bottom = getGridViewportHeight();
+		if (y < mEdgeScrollZone) {
+			int depth = mEdgeScrollZone - Math.max(y, 0);
+			return -Math.max(1, mMaxEdgeScrollStep * depth / mEdgeScrollZone);
+		}
+		if (y > bottom - mEdgeScrollZone) {
+			if (getTrayItemCount() > 0 && y >= bottom) return 0;
+			int depth = Math.min(y, bottom) - (bottom - mEdgeScrollZone);
+			return Math.max(1, mMaxEdgeScrollStep * depth / mEdgeScrollZone);
+		}
+		return 0;
+	}
+	
+	// Shows the dragged item at the target display position. Only the drag
+	// session changes, the items between the old and the new target shift
+	// on screen while the model stays as it was when the drag started.
+	// For a batch the target is where the block starts.
+	private void retargetDrag(int target) {
+		int oldTarget = mDragSession.getTarget();
+		mDragSession.moveTo(target);
+		int span = mDragSession.getBatchCount() - 1;
+		animateDisplayRange(Math.min(oldTarget, target), Math.max(oldTarget, target) + span);
+	}
+	
+	// Writes the order shown by the drag session to the model in a single
+	// move and ends the session. Returns the final position of the pressed item.
+	private int commitDrag() {
+		if (isBatchDrag()) return commitBatchDrag();
+		int origin = mDragSession.getOrigin();
+		int target = mDragSession.getTarget();
+		mDragSession.end();
+		if (origin != target) {
+			mGridModel.move(origin, target);
+			if (mAdapter != null) PositionModel.moveInArray(mAdapterPositions, origin, target);
+			if (mReorderListener != null) mReorderListener.onItemMoved(origin, target);
+		}
+		return target;
+	}
+	
+	// The whole block goes into the model in one moveAll() pass.
+	private int commitBatchDrag() {
+		int[] positions = mDragSession.getBatchPositions();
+		int count = mDragSession.getBatchCount();
+		int target = mDragSession.getTarget();
+		mDragSession.end();
+		boolean inPlace = true;
+		for (int i = 0; i < count && inPlace; i++) {
+			inPlace = positions[i] == target + i;
+		}
+		if (!inPlace) {
+			mGridModel.moveAll(positions, count, target);
+			if (mReorderListener != null) mReorderListener.onItemsMoved(positions, count, target);
 		}
+		return target + mBatchRank;
+	}
+	
+	// Shifts every item back to where the model has it and ends the
+	// session without touching the model.
+	private int cancelDrag() {
+		if (isBatchDrag()) {
+			int[] positions = mDragSession.getBatchPositions();
+			int count = mDragSession.getBatchCount();
+			int target = mDragSession.getTarget();
+			int pressed = positions[mBatchRank];
+			mDragSession.end();
+			animateDisplayRange(Math.min(positions[0], target), Math.max(positions[count - 1], target + count - 1));
+			return pressed;
+		}
+		int origin = mDragSession.getOrigin();
+		retargetDrag(origin);
+		mDragSession.end();
+		return origin;
+	}
+	
+	// Ends the running drag, dropping the item where it is shown or putting
+	// it back where it came from, and shows the real view in its cell again.
+	private void finishDrag(boolean drop) {
+		removeCallbacks(mDragFrame);
+		mDragFrameScheduled = false;
+		int dropTarget = drop ? mDropTarget : -1;
+		// Range the hidden cells of a batch are in, before and after the drop.
+		int batchFirst = 0, batchLast = -1;
+		if (isBatchDrag()) {
+			int[] positions = mDragSession.getBatchPositions();
+			int count = mDragSession.getBatchCount();
+			int target = mDragSession.getTarget();
+			batchFirst = Math.min(positions[0], target);
+			batchLast = Math.max(positions[count - 1], target + count - 1);
+		}
+		int position = drop ? commitDrag() : cancelDrag();
 		
-		return xy;
+		int cellLeft = mLayoutEngine.getLeft(position);
+		int cellTop = getCellTop(position);
+		mDraggedView.layout(cellLeft, cellTop, cellLeft+mChildSize, cellTop+mChildSize);
+		for (int i = batchFirst; i <= batchLast; i++) {
+			View child = mGridModel.get(i);
+			if (child == null || child == mDraggedView || !mSelected.contains(child)) continue;
+			layoutChildAt(child, i);
+			child.setVisibility(VISIBLE);
+		}
+		mDragShadow.stop();
+		setDropTarget(-1);
+		scrapOutsideBound(position);
+		if (dropTarget >= 0 && mOnItemDropListener != null) {
+			mOnItemDropListener.onItemDropped(position, dropTarget);
+		}
+	}
+	
+	@Override
+	public boolean beginEdit() {
+		if (mDragSession.isActive() || isFiltering()) return false;
+		mEditFirst = Integer.MAX_VALUE;
+		mEditLast = -1;
+		mShiftAnimator.beginBatch();
+		return true;
+	}
+	
+	/**
+	 * Moves the item at fromPos to toPos outside of a drag, as undo and
+	 * redo do. Only the items in between shift.
+	 */
+	@Override
+	public void moveItem(int fromPos, int toPos) {
+		mGridModel.move(fromPos, toPos);
+		if (mAdapter != null) PositionModel.moveInArray(mAdapterPositions, fromPos, toPos);
+		if (mReorderListener != null) mReorderListener.onItemMoved(fromPos, toPos);
+		animateModelRange(Math.min(fromPos, toPos), Math.max(fromPos, toPos));
+	}
+	
+	@Override
+	public void swapItems(int posA, int posB) {
+		View view = mGridModel.get(posA);
+		mGridModel.put(posA, mGridModel.get(posB));
+		mGridModel.put(posB, view);
+		if (mAdapter != null) {
+			int adapterPosition = mAdapterPositions[posA];
+			mAdapterPositions[posA] = mAdapterPositions[posB];
+			mAdapterPositions[posB] = adapterPosition;
+		}
+		if (mReorderListener != null) mReorderListener.onItemsSwapped(posA, posB);
+		animateModelRange(posA, posA);
+		animateModelRange(posB, posB);
+	}
+	
+	@Override
+	public void endEdit() {
+		mShiftAnimator.endBatch();
+		if (mAdapter != null && mEditFirst <= mEditLast) {
+			// Bound views the edit moved out of the bound range are recycled.
+			for (int i = mEditFirst; i <= mEditLast; i++) {
+				scrapIfOutsideBound(i);
+			}
+			bindVisibleCells();
+			layoutDirtyCells();
+		}
+	}
+	
+	private void animateModelRange(int first, int last) {
+		for (int i = first; i <= last; i++) {
+			animateNavigation(mGridModel.get(i), i);
+		}
+		mEditFirst = Math.min(mEditFirst, first);
+		mEditLast = Math.max(mEditLast, last);
+	}
+	
+	// Keeps a scrolling parent such as SpringboardPager from taking
+	// over a gesture this view has started handling.
+	private void disallowParentIntercept() {
+		if (getParent() != null) getParent().requestDisallowInterceptTouchEvent(true);
+	}
+	
+	// x and y are touch coordinates, the drag shadow is drawn
+	// in content coordinates.
+	private void setDraggedItemPosition(int x, int y) {
+		y += getScrollY();
+		int halfWidth = mChildSize/2;
+		mDragShadow.moveTo(x-halfWidth, y-halfWidth);
+	}
+	
+	private final int animTime = 150;
+	
+	private void animateNavigation(View v, int toPos) {
+		if (v == null) return;
+		mShiftAnimator.animateTo(v, mLayoutEngine.getLeft(toPos), getCellTop(toPos));
 	}
 	
 	// Returns the index of the item that is being pressed based on the 
 	// co-ordinates of the touch position.
 	// Doesnt return index if one of the tab bar items is clicked.
 	private int getIndexFromCoordinates(int x, int y) {
+		return mLayoutEngine.getIndex(x, y, getScrollY());
+	}
+	
+	// Passes the current geometry inputs to the layout engine.
+	// The cell table is only rebuilt if one of them changed.
+	// While filtering, only the matching cells are laid out, all in the grid.
+	// Returns true if cells may have moved.
+	private boolean updateGeometry() {
+		int gridCount = isFiltering() ? mFilterCount : getGridViewCount();
+		int itemCount = isFiltering() ? mFilterCount : getFullItemCount();
+		if (mLayoutEngine.configure(mColCount, mChildSize, mViewportHeight, gridCount, itemCount)) {
+			mGridModel.markAllDirty();
+			return true;
+		}
+		return false;
+	}
+	
+	// Derives the cell size from the width and passes it on with the height.
+	// Returns true if cells may have moved.
+	private boolean setViewportSize(int width, int height) {
+		if (width <= 0 || height <= 0) return false;
+		mChildSize = width / mColCount;
+		mViewportHeight = height;
+		mEdgeScrollZone = mChildSize / 2;
+		mMaxEdgeScrollStep = mChildSize / 4;
+		return updateGeometry();
+	}
+	
+	private void setCellSize(View child) {
+		LayoutParams params = child.getLayoutParams();
+		params.width = mChildSize;
+		params.height = mChildSize;
+	}
+	
+	private int getMaxScrollY() {
+		int contentHeight = mLayoutEngine.getGridRowCount() * mChildSize;
+		return Math.max(0, contentHeight - getGridViewportHeight());
+	}
+	
+	// Height of the area the grid scrolls in.
+	private int getGridViewportHeight() {
+		if (!isFiltering() && getTrayItemCount() > 0) {
+			// Keep the last grid row above the pinned tray.
+			return mLayoutEngine.getTrayTop();
+		}
+		return getHeight() > 0 ? getHeight() : mViewportHeight;
+	}
+	
+	private void scrollGridBy(int dy) {
+		int scrollY = Math.max(0, Math.min(getScrollY() + dy, getMaxScrollY()));
+		if (scrollY != getScrollY()) scrollTo(0, scrollY);
+	}
+	
+	@Override
+	protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+		super.onScrollChanged(l, t, oldl, oldt);
 		
+		// Keep the pinned tray and the drag shadow where they are on screen.
+		// Tray cells in flight shift to a target moved along with them.
+		int dy = t - oldt;
+		for (int i = mLayoutEngine.getGridCount(); !isFiltering() && i < getFullItemCount(); i++) {
+			View child = mGridModel.get(mDragSession.toModelPosition(i));
+			if (child == null || child == mDraggedView) continue;
+			child.offsetTopAndBottom(dy);
+			mShiftAnimator.offsetTargets(child, dy);
+		}
+		if (mDragSession.isActive()) mDragShadow.offset(0, dy);
+		
+		// A reflow clamping the scroll binds once it has moved the cells.
+		if (mAdapter != null && !mReflowPending) {
+			bindVisibleCells();
+			layoutDirtyCells();
+		}
+	}
+	
+	/**
+	 * Switches the view to adapter mode. Instead of holding a view for
+	 * every item, only the grid cells in the viewport plus a small margin
+	 * are bound through the adapter, cells scrolling out are recycled and
+	 * handed back to the adapter as convertView. Positions from
+	 * getGridViewCount() on go to the tray and are always bound, without
+	 * setGridViewCount() there is no tray and every item is in the grid.
+	 * Passing null leaves adapter mode and removes all views.
+	 * @param adapter - adapter providing the items, or null
+	 */
+	public void setAdapter(ListAdapter adapter) {
+		if (mAdapter != null) mAdapter.unregisterDataSetObserver(mDataSetObserver);
+		mAdapter = null;
+		
+		mShiftAnimator.endAll();
+		removeAllViewsInLayout();
+		clearRecycler();
+		mGridModel.clear();
+		mItemViews.clear();
+		mBoundItems.clear();
+		mLabelIndex.clear();
+		mFilter = null;
+		mFilterCount = 0;
+		mSelected.clear();
+		mSelectionMode = false;
+		mFirstBound = 0;
+		mLastBound = -1;
+		mDragSession.end();
+		mDragShadow.stop();
+		setDropTarget(-1);
+		scrollTo(0, 0);
+		
+		mAdapter = adapter;
+		if (mAdapter != null) {
+			mAdapter.registerDataSetObserver(mDataSetObserver);
+			mRecycler.setViewTypeCount(mAdapter.getViewTypeCount());
+			resetAdapterViews();
+		} else {
+			updateGeometry();
+		}
+		requestLayout();
+	}
+	
+	/**
+	 * Sets the recorder every touch event and long click is passed to,
+	 * or null.
+	 */
+	public void setTouchTraceRecorder(TouchTraceRecorder recorder) {
+		mTraceRecorder = recorder;
+	}
+	
+	/**
+	 * Sets the listener told about every reorder a drag applies,
+	 * for example a LayoutStore persisting the order.
+	 */
+	public void setReorderListener(ReorderListener listener) {
+		mReorderListener = listener;
+	}
+	
+	/**
+	 * Turns multi-select on or off. While on, taps select and deselect
+	 * cells instead of being reported, and long pressing a selected cell
+	 * drags all selected cells as a block. Turning it off clears the
+	 * selection. Not available in adapter mode.
+	 */
+	public void setSelectionMode(boolean selectionMode) {
+		if (mAdapter != null) throw new IllegalStateException("setSelectionMode() is not available in adapter mode");
+		mSelectionMode = selectionMode;
+		if (!selectionMode && !mSelected.isEmpty()) {
+			mSelected.clear();
+			invalidate();
+		}
+	}
+	
+	public boolean isSelectionMode() {
+		return mSelectionMode;
+	}
+	
+	public int getSelectedCount() {
+		return mSelected.size();
+	}
+	
+	public void setOnItemClickListener(OnItemClickListener listener) {
+		mOnItemClickListener = listener;
+	}
+	
+	/**
+	 * Sets the listener told about items dropped onto other items.
+	 * While one is set, drags only reorder after a short dwell on a cell.
+	 */
+	public void setOnItemDropListener(OnItemDropListener listener) {
+		mOnItemDropListener = listener;
+	}
+	
+	public void setOnCellSizeChangeListener(OnCellSizeChangeListener listener) {
+		mOnCellSizeChangeListener = listener;
+	}
+	
+	public ListAdapter getAdapter() {
+		return mAdapter;
+	}
+	
+	/**
+	 * Sets the pool of pre-inflated cells used in adapter mode whenever
+	 * there is no scrap view to recycle. The pooled cell is passed to the
+	 * adapter as convertView.
+	 */
+	public void setCellFactory(CellFactory factory) {
+		mCellFactory = factory;
+	}
+	
+	/**
+	 * Returns the adapter position of the item currently shown at the given
+	 * display position. Only meaningful in adapter mode, where drags reorder
+	 * the display without touching the adapter.
+	 */
+	public int getAdapterPosition(int position) {
+		return mAdapterPositions[mDragSession.toModelPosition(position)];
+	}
+	
+	// Recycles every bound view and rebinds from the adapter's current data.
+	private void resetAdapterViews() {
+		mShiftAnimator.endAll();
+		int count = mAdapter.getCount();
 		for (int i = 0; i < getFullItemCount(); i++) {
-			Point xy = getCoordinatesFromPosition(i);
-			if ((x > xy.x) && (x < (xy.x+mChildSize))) {
-				if ((y > xy.y) && (y < (xy.y+mChildSize))) {
-					return i;
-				}
+			View child = mGridModel.get(i);
+			if (child == null) continue;
+			if (mAdapterPositions[i] < count) {
+				scrapView(child, i);
+			} else {
+				// The item is gone, its view type can no longer be asked for.
+				removeViewInLayout(child);
 			}
 		}
 		
-		/*for (int j = 0; j < getTrayViewCount(); j++) {
-			Point xy = getCoordinatesFromPosition(j+getGridViewCount());
-			if ((x > xy.x) && (x < (xy.x+mChildSize))) {
-				if ((y > xy.y) && (y < (xy.y+mChildSize))) {
-					return j+getGridViewCount();
-				}
-			}
-		}*/
+		mGridModel.clear();
+		mGridModel.setSize(count);
+		if (mAdapterPositions.length < count) {
+			mAdapterPositions = new int[count];
+		}
+		for (int i = 0; i < count; i++) {
+			mAdapterPositions[i] = i;
+		}
+		mFirstBound = 0;
+		mLastBound = -1;
+		mDragSession.end();
+		mDragShadow.stop();
+		setDropTarget(-1);
+		updateGeometry();
 		
-		return -1;
+		scrollGridBy(0);
+		bindVisibleCells();
+		layoutDirtyCells();
+	}
+	
+	// Hands every bound view but the dragged one back to the adapter as
+	// convertView for the item it already shows.
+	private void rebindAdapterCells() {
+		for (int i = 0; i < getFullItemCount(); i++) {
+			View child = mGridModel.get(i);
+			if (child == null || isDraggedView(child)) continue;
+			scrapView(child, i);
+			bindCell(i);
+		}
+		layoutDirtyCells();
+	}
+	
+	// Binds the grid cells inside the viewport plus the margin rows and all
+	// tray cells, and recycles grid cells that left that range. The dragged
+	// view stays bound at its origin wherever the drag scrolls to, it is
+	// recycled once dropped if it ends up outside the range.
+	// Newly bound cells are marked dirty and placed by layoutDirtyCells().
+	private void bindVisibleCells() {
+		int gridCount = mLayoutEngine.getGridCount();
+		int viewportHeight = getHeight() > 0 ? getHeight() : mViewportHeight;
+		int firstRow = Math.max(0, getScrollY() / mChildSize - BIND_MARGIN_ROWS);
+		int lastRow = (getScrollY() + viewportHeight) / mChildSize + BIND_MARGIN_ROWS;
+		int first = firstRow * mColCount;
+		int last = Math.min(gridCount - 1, (lastRow + 1) * mColCount - 1);
+		
+		for (int i = mFirstBound; i <= mLastBound; i++) {
+			if (i >= first && i <= last) continue;
+			View child = mGridModel.get(i);
+			if (child == null || isDraggedView(child)) continue;
+			scrapView(child, i);
+		}
+		
+		for (int i = first; i <= last; i++) {
+			if (mGridModel.get(i) == null) bindCell(i);
+		}
+		for (int i = gridCount; i < getFullItemCount(); i++) {
+			if (mGridModel.get(i) == null) bindCell(i);
+		}
+		
+		mFirstBound = first;
+		mLastBound = last;
+	}
+	
+	private void bindCell(int position) {
+		int adapterPosition = mAdapterPositions[position];
+		int viewType = mAdapter.getItemViewType(adapterPosition);
+		View scrap = mRecycler.get(viewType);
+		View pooled = null;
+		if (scrap == null && mCellFactory != null) {
+			// Nothing to recycle, offer a pre-inflated cell as convertView.
+			pooled = mCellFactory.obtain();
+		}
+		View child = mAdapter.getView(adapterPosition, scrap != null ? scrap : pooled, this);
+		
+		LayoutParams params = child.getLayoutParams();
+		if (params == null) params = new LayoutParams(mChildSize, mChildSize);
+		// Scrap may have been bound before the cell size changed.
+		params.width = mChildSize;
+		params.height = mChildSize;
+		if (child == scrap) {
+			attachViewToParent(child, -1, params);
+		} else {
+			if (scrap != null) dropScrap(scrap, viewType);
+			if (pooled != null && pooled != child) mCellFactory.release(pooled);
+			addViewInLayout(child, -1, params, true);
+		}
+		measureCell(child);
+		mGridModel.put(position, child);
+	}
+	
+	private boolean isDraggedView(View child) {
+		return mDragSession.isActive() && child == mDraggedView;
+	}
+	
+	// The dragged view is the only grid view that may be bound outside
+	// [mFirstBound, mLastBound]. Once the drop has been written to the model
+	// the view left outside is either the dragged one itself or the one the
+	// drop shifted past the edge of the range, recycle it.
+	private void scrapOutsideBound(int droppedPosition) {
+		if (mAdapter == null || mFirstBound > mLastBound) return;
+		scrapIfOutsideBound(droppedPosition);
+		scrapIfOutsideBound(mFirstBound - 1);
+		scrapIfOutsideBound(mLastBound + 1);
+	}
+	
+	private void scrapIfOutsideBound(int position) {
+		if (position < 0 || position >= mLayoutEngine.getGridCount()) return;
+		if (position >= mFirstBound && position <= mLastBound) return;
+		View child = mGridModel.get(position);
+		if (child != null) scrapView(child, position);
+	}
+	
+	private void scrapView(View child, int position) {
+		mShiftAnimator.cancel(child);
+		mGridModel.put(position, null);
+		detachViewFromParent(child);
+		int viewType = mAdapter.getItemViewType(mAdapterPositions[position]);
+		dropScrap(child, viewType);
+	}
+	
+	private void dropScrap(View scrap, int viewType) {
+		if (!mRecycler.add(scrap, viewType)) {
+			removeDetachedView(scrap, false);
+		}
+	}
+	
+	private void clearRecycler() {
+		View scrap;
+		while ((scrap = mRecycler.poll()) != null) {
+			removeDetachedView(scrap, false);
+		}
 	}
 	
 	// Getter setter methods below for convenience.
@@ -288,18 +1480,33 @@ public class DraggableView extends ViewGroup implements View.OnLongClickListener
 	}
 	
 	public int getGridViewCount() {
-		return mFullGridItemCount;
+		int count = mGridModel.size();
+		return mFullGridItemCount < 0 ? count : Math.min(mFullGridItemCount, count);
 	}
+	/**
+	 * Puts the first gvCount positions in the grid and the rest in the
+	 * tray. A negative count, the default, puts every position in the grid.
+	 */
 	public void setGridViewCount(int gvCount) {
 		mFullGridItemCount = gvCount;
+		if (!updateGeometry() || mAdapter == null) return;
+		// Positions moved between the grid and the tray, bind the new window.
+		for (int i = 0; i < getFullItemCount(); i++) {
+			View child = mGridModel.get(i);
+			if (child != null && !isDraggedView(child)) scrapView(child, i);
+		}
+		mFirstBound = 0;
+		mLastBound = -1;
+		bindVisibleCells();
+		layoutDirtyCells();
 	}
 	
 	public int getFullItemCount() {
-		return mGridMap.size();
+		return mGridModel.size();
 	}
 	
 	public int getTrayItemCount() {
-		return mGridMap.size()-mFullGridItemCount;
+		return mGridModel.size()-getGridViewCount();
 	}
 	
 }
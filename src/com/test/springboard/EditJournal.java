@@ -0,0 +1,331 @@
+package com.test.springboard;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+
+import android.util.Log;
+
+/**
+ * Undo and redo for reorders. Listens to a container like any other
+ * ReorderListener and keeps every reorder as a (kind, a, b) record, a
+ * move from a to b or a swap of a and b, never a copy of the layout.
+ * Undoing a record applies its inverse through the container's Editor,
+ * so only the icons it touches shift.
+ *
+ * Records live in a ring of fixed capacity, so memory does not grow
+ * with the number of items or edits. Once the ring is full the oldest
+ * edit is dropped. A batch is kept as a group of moves that is undone
+ * and redone as one edit.
+ *
+ * The journal is saved next to the layout, tied to a hash of the order
+ * it was saved with, and only loaded back if the order still matches.
+ *
+ * All public methods must be called on the UI thread.
+ */
+public class EditJournal implements ReorderListener {
+
+	/**
+	 * Applies undone and redone reorders to a container.
+	 */
+	public interface Editor {
+		/**
+		 * Called before an edit is replayed.
+		 * @return false if the container cannot be edited right now
+		 */
+		boolean beginEdit();
+		void moveItem(int fromPos, int toPos);
+		void swapItems(int posA, int posB);
+		void endEdit();
+	}
+
+	private final String TAG = "EditJournal";
+
+	private static final int MAGIC = 0x53424a4e;
+	private static final int HEADER_SIZE = 20;	// magic, state hash, count, cursor, checksum
+	private static final int RECORD_SIZE = 12;	// op, a, b
+	private static final int KIND_MOVE = 1;
+	private static final int KIND_SWAP = 2;
+	private static final int GROUP_START = 0x100;	// Set on the first record of every edit.
+
+	private final File mFile;
+	private final File mTempFile;
+	private final ExecutorService mWriter;
+
+	// Ring of records, oldest at mHead. Records before mCursor are applied
+	// and can be undone, records from mCursor on were undone and can be redone.
+	private final int mCapacity;
+	private final int[] mOps;
+	private final int[] mA;
+	private final int[] mB;
+	private int mHead = 0;
+	private int mSize = 0;
+	private int mCursor = 0;
+	private boolean mReplaying = false;		// Reorders reported while replaying are our own.
+	private int[] mBatchPositions = new int[0];
+
+	/**
+	 * @param dir - directory the journal is saved in
+	 * @param capacity - maximum number of records kept
+	 */
+	public EditJournal(File dir, int capacity) {
+		mFile = new File(dir, "journal.bin");
+		mTempFile = new File(dir, "journal.bin.tmp");
+		mCapacity = capacity;
+		mOps = new int[capacity];
+		mA = new int[capacity];
+		mB = new int[capacity];
+		mWriter = BackgroundExecutor.newSingleThread(TAG);
+	}
+
+	public boolean canUndo() {
+		return mCursor > 0;
+	}
+
+	public boolean canRedo() {
+		return mCursor < mSize;
+	}
+
+	/**
+	 * Undoes the last edit.
+	 * @return false if there is nothing to undo or the editor is busy
+	 */
+	public boolean undo(Editor editor) {
+		if (mCursor == 0 || !editor.beginEdit()) return false;
+		mReplaying = true;
+		int op;
+		do {
+			mCursor--;
+			int slot = slotOf(mCursor);
+			op = mOps[slot];
+			if ((op & KIND_SWAP) != 0) {
+				editor.swapItems(mA[slot], mB[slot]);
+			} else {
+				editor.moveItem(mB[slot], mA[slot]);
+			}
+		} while ((op & GROUP_START) == 0 && mCursor > 0);
+		mReplaying = false;
+		editor.endEdit();
+		return true;
+	}
+
+	/**
+	 * Applies the last undone edit again.
+	 * @return false if there is nothing to redo or the editor is busy
+	 */
+	public boolean redo(Editor editor) {
+		if (mCursor == mSize || !editor.beginEdit()) return false;
+		mReplaying = true;
+		do {
+			int slot = slotOf(mCursor);
+			if ((mOps[slot] & KIND_SWAP) != 0) {
+				editor.swapItems(mA[slot], mB[slot]);
+			} else {
+				editor.moveItem(mA[slot], mB[slot]);
+			}
+			mCursor++;
+		} while (mCursor < mSize && (mOps[slotOf(mCursor)] & GROUP_START) == 0);
+		mReplaying = false;
+		editor.endEdit();
+		return true;
+	}
+
+	/**
+	 * Forgets every edit, for changes the journal cannot express such as
+	 * items being added or removed.
+	 */
+	public void clear() {
+		mHead = 0;
+		mSize = 0;
+		mCursor = 0;
+	}
+
+	@Override
+	public void onItemMoved(int fromPos, int toPos) {
+		if (mReplaying || fromPos == toPos) return;
+		if (!beginGroup(1)) return;
+		append(KIND_MOVE | GROUP_START, fromPos, toPos);
+	}
+
+	@Override
+	public void onItemsSwapped(int posA, int posB) {
+		if (mReplaying || posA == posB) return;
+		if (!beginGroup(1)) return;
+		append(KIND_SWAP | GROUP_START, posA, posB);
+	}
+
+	// Kept as the single moves that bring the items into place one by one.
+	// Items moving towards the front go first, front to back, then the ones
+	// moving towards the back, back to front, so no move shifts an item that
+	// is already in place.
+	@Override
+	public void onItemsMoved(int[] positions, int count, int toPos) {
+		if (mReplaying || count == 0) return;
+		if (!beginGroup(count)) return;
+		if (mBatchPositions.length < count) mBatchPositions = new int[count];
+		int[] current = mBatchPositions;
+		System.arraycopy(positions, 0, current, 0, count);
+		int op = KIND_MOVE | GROUP_START;
+		for (int i = 0; i < count; i++) {
+			if (current[i] > toPos + i) op = appendBatchMove(op, current, count, i, toPos + i);
+		}
+		for (int i = count - 1; i >= 0; i--) {
+			if (current[i] >= 0 && current[i] < toPos + i) op = appendBatchMove(op, current, count, i, toPos + i);
+		}
+	}
+
+	/**
+	 * Saves the journal on a background thread.
+	 * @param stateHash - hash of the current layout, load() only accepts the same hash
+	 */
+	public void save(final int stateHash) {
+		final int count = mSize;
+		final int cursor = mCursor;
+		final ByteBuffer records = ByteBuffer.allocate(count * RECORD_SIZE);
+		for (int i = 0; i < count; i++) {
+			int slot = slotOf(i);
+			records.putInt(mOps[slot]).putInt(mA[slot]).putInt(mB[slot]);
+		}
+		mWriter.execute(new Runnable() {
+			@Override
+			public void run() {
+				write(stateHash, count, cursor, records.array());
+			}
+		});
+	}
+
+	/**
+	 * Loads the saved journal if it was saved with the given layout hash,
+	 * otherwise starts empty.
+	 * @return true if a journal was loaded
+	 */
+	public boolean load(int stateHash) {
+		clear();
+		byte[] bytes;
+		try {
+			RandomAccessFile file = new RandomAccessFile(mFile, "r");
+			try {
+				bytes = new byte[(int) file.length()];
+				file.readFully(bytes);
+			} finally {
+				file.close();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		if (bytes.length < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != stateHash) return false;
+		int count = buffer.getInt();
+		int cursor = buffer.getInt();
+		int checksum = buffer.getInt();
+		if (count < 0 || count > mCapacity || cursor < 0 || cursor > count
+				|| bytes.length != HEADER_SIZE + count * RECORD_SIZE) {
+			return false;
+		}
+		int hash = 31 * stateHash + cursor;
+		for (int i = 0; i < count; i++) {
+			mOps[i] = buffer.getInt();
+			mA[i] = buffer.getInt();
+			mB[i] = buffer.getInt();
+			hash = 31 * (31 * (31 * hash + mOps[i]) + mA[i]) + mB[i];
+		}
+		if (hash != checksum || (count > 0 && (mOps[0] & GROUP_START) == 0)) {
+			clear();
+			return false;
+		}
+		mSize = count;
+		mCursor = cursor;
+		return true;
+	}
+
+	/**
+	 * Stops the writer once everything queued so far is on disk.
+	 */
+	public void close() {
+		mWriter.shutdown();
+	}
+
+	// Drops what can be redone and makes room for a new edit of the given
+	// number of records. An edit larger than the whole ring cannot be
+	// undone, everything older is dropped with it.
+	private boolean beginGroup(int records) {
+		mSize = mCursor;
+		if (records > mCapacity) {
+			clear();
+			return false;
+		}
+		while (mSize + records > mCapacity) {
+			dropOldestGroup();
+		}
+		return true;
+	}
+
+	// Records the move of batch item i and updates where the move leaves
+	// the items not placed yet. Placed items are marked with -1.
+	private int appendBatchMove(int op, int[] current, int count, int i, int to) {
+		int from = current[i];
+		append(op, from, to);
+		current[i] = -1;
+		for (int j = 0; j < count; j++) {
+			int p = current[j];
+			if (p < 0) continue;
+			if (from < to && p > from && p <= to) {
+				current[j] = p - 1;
+			} else if (to < from && p >= to && p < from) {
+				current[j] = p + 1;
+			}
+		}
+		return KIND_MOVE;
+	}
+
+	private void dropOldestGroup() {
+		do {
+			mHead = (mHead + 1) % mCapacity;
+			mSize--;
+			mCursor--;
+		} while (mSize > 0 && (mOps[mHead] & GROUP_START) == 0);
+	}
+
+	private void append(int op, int a, int b) {
+		int slot = slotOf(mSize);
+		mOps[slot] = op;
+		mA[slot] = a;
+		mB[slot] = b;
+		mSize++;
+		mCursor = mSize;
+	}
+
+	private int slotOf(int index) {
+		return (mHead + index) % mCapacity;
+	}
+
+	// Runs on the writer thread.
+	private void write(int stateHash, int count, int cursor, byte[] records) {
+		ByteBuffer buffer = ByteBuffer.wrap(records);
+		int hash = 31 * stateHash + cursor;
+		for (int i = 0; i < count; i++) {
+			hash = 31 * (31 * (31 * hash + buffer.getInt()) + buffer.getInt()) + buffer.getInt();
+		}
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(stateHash).putInt(count).putInt(cursor).putInt(hash);
+		try {
+			FileOutputStream out = new FileOutputStream(mTempFile);
+			try {
+				out.write(header.array());
+				out.write(records);
+				out.getFD().sync();
+			} finally {
+				out.close();
+			}
+			if (!mTempFile.renameTo(mFile)) {
+				throw new IOException("cannot rename " + mTempFile);
+			}
+		} catch (IOException e) {
+			Log.w(SpringboardActivity.LOGTAG, TAG + " - cannot save journal", e);
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package com.test.springboard;
+
+import java.util.List;
+
+import android.content.Context;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Overlay showing the contents of an open folder, centered over the
+ * springboard in rows of COLUMNS cells.
+ *
+ * The panel is added to the window once and only toggles between
+ * VISIBLE and INVISIBLE, neither of which requests a layout. Opening a
+ * folder adds, measures and lays out the folder's cells right here
+ * without requesting a layout, so the springboard below is not laid
+ * out again. A cell asking for a layout while it is bound only reaches
+ * the panel and its parents, the springboard's own pass is skipped.
+ * Cells are kept across opens and only bound again.
+ * A tap anywhere closes the panel.
+ */
+public class FolderPanel extends ViewGroup {
+
+	private static final int COLUMNS = 3;
+	private static final int SCRIM_COLOR = 0xC0000000;
+
+	private int mChildSize;
+	private final PositionModel<View> mCells = new PositionModel<View>(COLUMNS * COLUMNS);
+	private final GridLayoutEngine mLayoutEngine = new GridLayoutEngine();
+	private SpringboardItem mFolder;
+	private DraggableView.ItemBinder mBinder;	// Binder of the open folder.
+
+	/**
+	 * @param childSize - width and height of a single cell, same as the springboard's
+	 */
+	public FolderPanel(Context context, int childSize) {
+		super(context);
+		mChildSize = childSize;
+		setBackgroundColor(SCRIM_COLOR);
+		setVisibility(INVISIBLE);
+	}
+
+	/**
+	 * Shows the items of the folder.
+	 * @param folder - folder to open
+	 * @param binder - creates and binds the cells, same as the springboard's
+	 */
+	public void open(SpringboardItem folder, DraggableView.ItemBinder binder) {
+		long traceStart = SpringboardTrace.ENABLED ? SpringboardTrace.begin() : 0;
+
+		List<SpringboardItem> children = folder.getChildren();
+		int count = children.size();
+		for (int i = count; i < mCells.size(); i++) {
+			removeViewInLayout(mCells.get(i));
+		}
+		mCells.setSize(count);
+		for (int i = 0; i < count; i++) {
+			SpringboardItem item = children.get(i);
+			View cell = mCells.get(i);
+			if (cell == null) {
+				cell = binder.createView(item);
+				LayoutParams params = cell.getLayoutParams();
+				if (params == null) params = new LayoutParams(mChildSize, mChildSize);
+				addViewInLayout(cell, -1, params, true);
+				mCells.put(i, cell);
+			}
+			setCellSize(cell);
+			binder.bindView(cell, item);
+			measureCell(cell);
+		}
+		mFolder = folder;
+		mBinder = binder;
+		mLayoutEngine.configure(COLUMNS, mChildSize, 0, count, count);
+		mCells.markAllDirty();
+		layoutCells();
+		setVisibility(VISIBLE);
+		invalidate();
+
+		if (SpringboardTrace.ENABLED) SpringboardTrace.end(SpringboardTrace.LAYOUT, traceStart);
+	}
+
+	/**
+	 * Sets the size of a single cell, called when the springboard's
+	 * changes. An open folder is bound again at the new size and laid out
+	 * right away, closed cells pick it up on the next open().
+	 * @param childSize - width and height of a single cell, same as the springboard's
+	 */
+	public void setChildSize(int childSize) {
+		if (childSize == mChildSize) return;
+		mChildSize = childSize;
+		if (mFolder == null) return;
+		List<SpringboardItem> children = mFolder.getChildren();
+		for (int i = 0; i < mCells.size(); i++) {
+			View cell = mCells.get(i);
+			setCellSize(cell);
+			mBinder.bindView(cell, children.get(i));
+			measureCell(cell);
+		}
+		mLayoutEngine.configure(COLUMNS, mChildSize, 0, mCells.size(), mCells.size());
+		mCells.markAllDirty();
+		layoutCells();
+		invalidate();
+	}
+
+	public void close() {
+		mFolder = null;
+		mBinder = null;
+		setVisibility(INVISIBLE);
+	}
+
+	public boolean isOpen() {
+		return mFolder != null;
+	}
+
+	/**
+	 * Returns the folder currently shown, or null.
+	 */
+	public SpringboardItem getFolder() {
+		return mFolder;
+	}
+
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+		for (int i = 0; i < mCells.size(); i++) {
+			View cell = mCells.get(i);
+			if (cell != null && cell.isLayoutRequested()) measureCell(cell);
+		}
+	}
+
+	@Override
+	protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+		if (changed) mCells.markAllDirty();
+		layoutCells();
+	}
+
+	@Override
+	public boolean onTouchEvent(MotionEvent event) {
+		// Everything under the panel is covered, close on a tap anywhere.
+		if (event.getAction() == MotionEvent.ACTION_UP) close();
+		return true;
+	}
+
+	private void setCellSize(View cell) {
+		LayoutParams params = cell.getLayoutParams();
+		params.width = mChildSize;
+		params.height = mChildSize;
+	}
+
+	private void measureCell(View cell) {
+		cell.measure(MeasureSpec.makeMeasureSpec(cell.getLayoutParams().width, MeasureSpec.UNSPECIFIED),
+				MeasureSpec.makeMeasureSpec(cell.getLayoutParams().height, MeasureSpec.UNSPECIFIED));
+	}
+
+	// Lays out the cells changed since the last pass, centered in the panel.
+	private void layoutCells() {
+		if (!mCells.isDirty() || getWidth() == 0) return;
+		int rows = mLayoutEngine.getGridRowCount();
+		int originX = (getWidth() - COLUMNS * mChildSize) / 2;
+		int originY = (getHeight() - rows * mChildSize) / 2;
+		int last = mCells.getDirtyEnd();
+		for (int i = mCells.getDirtyStart(); i <= last; i++) {
+			View cell = mCells.get(i);
+			if (cell == null) continue;
+			int cellLeft = originX + mLayoutEngine.getLeft(i);
+			int cellTop = originY + mLayoutEngine.getTop(i);
+			cell.layout(cellLeft, cellTop, cellLeft + mChildSize, cellTop + mChildSize);
+			if (SpringboardTrace.ENABLED) SpringboardTrace.count(SpringboardTrace.COUNT_LAYOUT_CHILD);
+		}
+		mCells.clearDirty();
+	}
+}
@@ -0,0 +1,118 @@
+package com.test.springboard;
+
+import java.util.List;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.widget.ImageView;
+
+/**
+ * Cache of folder tiles. The first PREVIEW_COUNT icons of a folder are
+ * drawn once into a single bitmap on a background thread, after that a
+ * folder costs one drawBitmap() like any other icon. Previews are keyed
+ * by folder id and a hash of the previewed icons, so a preview is only
+ * rendered again when those icons change, stale ones age out of the LRU.
+ *
+ * Shares its request bookkeeping with IconCache and uses it for the
+ * icons themselves. All public methods must be called on the UI thread.
+ */
+public class FolderPreviewCache {
+
+	private final String TAG = "FolderPreviewCache";
+
+	private static final int PREVIEW_COLUMNS = 2;
+	private static final int PREVIEW_COUNT = PREVIEW_COLUMNS * PREVIEW_COLUMNS;
+
+	private final IconCache mIconCache;
+	private final AsyncBitmapCache mCache;
+
+	/**
+	 * @param iconCache - cache the previewed icons are taken from
+	 * @param maxBytes - byte budget of the cached previews
+	 */
+	public FolderPreviewCache(IconCache iconCache, int maxBytes) {
+		mIconCache = iconCache;
+		mCache = new AsyncBitmapCache(TAG, maxBytes);
+	}
+
+	/**
+	 * Shows the preview of the folder in the view as a size x size bitmap.
+	 * A cached preview is set right away, otherwise the view is cleared
+	 * and gets the preview once it has been rendered.
+	 * @param view - view to show the preview in
+	 * @param folder - folder to preview
+	 * @param size - width and height the preview is shown at, in pixels
+	 */
+	public void loadPreview(ImageView view, SpringboardItem folder, int size) {
+		Long key = Long.valueOf(((long) folder.getId() << 32) | (contentHash(folder, size) & 0xffffffffL));
+		if (mCache.bind(view, key)) return;
+
+		// Only the resource ids cross to the render thread, not the item.
+		List<SpringboardItem> children = folder.getChildren();
+		final int[] resIds = new int[Math.min(children.size(), PREVIEW_COUNT)];
+		for (int i = 0; i < resIds.length; i++) {
+			resIds[i] = children.get(i).getIconResId();
+		}
+		final int renderSize = size;
+		mCache.produce(key, new AsyncBitmapCache.Producer() {
+			@Override
+			public Bitmap produce() {
+				return render(resIds, renderSize);
+			}
+		});
+	}
+
+	/**
+	 * Forgets the preview last asked for by the view, so a render still
+	 * in flight is not set on a view that now shows something else.
+	 */
+	public void cancel(ImageView view) {
+		mCache.cancel(view);
+	}
+
+	public void evictAll() {
+		mCache.evictAll();
+	}
+
+	/**
+	 * Stops the render thread. Pending renders are dropped.
+	 */
+	public void shutdown() {
+		mCache.shutdown();
+	}
+
+	// Runs on the render thread. Draws the icons into a PREVIEW_COLUMNS
+	// square grid, each icon decoded straight at its slot size.
+	private Bitmap render(int[] resIds, int size) {
+		if (size <= 0) return null;
+		int slot = size / PREVIEW_COLUMNS;
+		int padding = slot / 8;
+
+		Bitmap preview = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+		Canvas canvas = new Canvas(preview);
+		Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+		Rect dst = new Rect();
+		for (int i = 0; i < resIds.length; i++) {
+			Bitmap icon = mIconCache.getIconBlocking(resIds[i], slot - 2 * padding);
+			if (icon == null) continue;
+			int left = (i % PREVIEW_COLUMNS) * slot + padding;
+			int top = (i / PREVIEW_COLUMNS) * slot + padding;
+			dst.set(left, top, left + slot - 2 * padding, top + slot - 2 * padding);
+			canvas.drawBitmap(icon, null, dst, paint);
+		}
+		return preview;
+	}
+
+	// Hash of what the preview shows, the folder id is kept apart in the key.
+	private static int contentHash(SpringboardItem folder, int size) {
+		List<SpringboardItem> children = folder.getChildren();
+		int count = Math.min(children.size(), PREVIEW_COUNT);
+		int hash = size;
+		for (int i = 0; i < count; i++) {
+			hash = 31 * hash + children.get(i).getIconResId();
+		}
+		return 31 * hash + count;
+	}
+}
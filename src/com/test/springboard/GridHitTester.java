@@ -0,0 +1,69 @@
+package com.test.springboard;
+
+/**
+ * Resolves a touch position to a cell position using grid arithmetic
+ * instead of walking every cell. The grid occupies positions
+ * 0 .. gridCount-1 laid out row by row from the top left, the tray
+ * occupies positions gridCount .. gridCount+trayCount-1 laid out in
+ * a single band starting at trayTop.
+ *
+ * Cell bounds are exclusive on every edge, same as the original
+ * per-cell loop, so a touch exactly on a cell border hits nothing.
+ * When a grid cell and a tray cell overlap the grid cell wins, since
+ * it has the lower position.
+ */
+public class GridHitTester {
+
+	private int mColCount;
+	private int mChildSize;
+	private int mGridCount;
+	private int mTrayCount;
+	private int mTrayTop;
+
+	/**
+	 * Updates the geometry used for hit testing. Cheap enough to be
+	 * called before every lookup.
+	 * @param colCount - number of columns in the grid
+	 * @param childSize - width and height of a single cell
+	 * @param gridCount - number of positions in the grid
+	 * @param trayCount - number of positions in the tray band
+	 * @param trayTop - top coordinate of the tray band
+	 */
+	public void configure(int colCount, int childSize, int gridCount, int trayCount, int trayTop) {
+		mColCount = colCount;
+		mChildSize = childSize;
+		mGridCount = gridCount > 0 ? gridCount : 0;
+		mTrayCount = trayCount > 0 ? trayCount : 0;
+		mTrayTop = trayTop;
+	}
+
+	/**
+	 * Returns the position of the cell containing the given point,
+	 * or -1 if the point is not strictly inside any cell.
+	 */
+	public int getIndex(int x, int y) {
+		return getIndex(x, y, 0);
+	}
+
+	/**
+	 * Same as getIndex(x, y) for a grid scrolled by scrollY. The grid
+	 * scrolls with the content, the tray band stays pinned to the viewport.
+	 */
+	public int getIndex(int x, int y, int scrollY) {
+		int size = mChildSize;
+		if (size <= 0 || x <= 0 || x % size == 0) return -1;
+		int col = x / size;
+
+		int gridY = y + scrollY;
+		if (mColCount > 0 && col < mColCount && gridY > 0 && gridY % size != 0) {
+			int index = (gridY / size) * mColCount + col;
+			if (index < mGridCount) return index;
+		}
+
+		if (col < mTrayCount && y > mTrayTop && y < mTrayTop + size) {
+			return mGridCount + col;
+		}
+
+		return -1;
+	}
+}
@@ -0,0 +1,121 @@
+package com.test.springboard;
+
+/**
+ * Cell geometry shared by the drag containers. Positions below
+ * gridCount are laid out row by row from the top left, the remaining
+ * positions go into a single tray band at the bottom of the container.
+ *
+ * The origin of every cell is precomputed into a packed int table
+ * (x and y interleaved) which is only rebuilt when one of the inputs
+ * changes, so layout and animation code can read cell origins
+ * without any arithmetic or allocation.
+ */
+public class GridLayoutEngine {
+
+	private int mColCount;
+	private int mChildSize;
+	private int mHeight;
+	private int mGridCount;
+	private int mItemCount;
+
+	private int[] mCells = new int[0];
+	private boolean mDirty = true;
+
+	private final GridHitTester mHitTester = new GridHitTester();
+
+	/**
+	 * Sets the inputs the cell table is computed from. The table is
+	 * marked stale only if one of them actually changed, and is rebuilt
+	 * lazily on the next read.
+	 * @param colCount - number of columns in the grid
+	 * @param childSize - width and height of a single cell
+	 * @param height - height of the container, the tray is placed at its bottom
+	 * @param gridCount - number of positions in the grid, the rest are tray positions
+	 * @param itemCount - total number of positions
+	 * @return true if any input changed, meaning cells may have moved
+	 */
+	public boolean configure(int colCount, int childSize, int height, int gridCount, int itemCount) {
+		if (gridCount > itemCount) gridCount = itemCount;
+		if (colCount == mColCount && childSize == mChildSize && height == mHeight
+				&& gridCount == mGridCount && itemCount == mItemCount) {
+			return false;
+		}
+		mColCount = colCount;
+		mChildSize = childSize;
+		mHeight = height;
+		mGridCount = gridCount;
+		mItemCount = itemCount;
+		mDirty = true;
+		return true;
+	}
+
+	public int getLeft(int position) {
+		if (mDirty) rebuild();
+		return mCells[position << 1];
+	}
+
+	public int getTop(int position) {
+		if (mDirty) rebuild();
+		return mCells[(position << 1) + 1];
+	}
+
+	public int getTrayTop() {
+		return mHeight - mChildSize;
+	}
+
+	/**
+	 * Returns the position of the cell containing the given point,
+	 * or -1 if the point is not inside any cell.
+	 */
+	public int getIndex(int x, int y) {
+		return getIndex(x, y, 0);
+	}
+
+	/**
+	 * Same as getIndex(x, y) with the grid scrolled by scrollY.
+	 * The tray is pinned to the viewport and does not scroll.
+	 */
+	public int getIndex(int x, int y, int scrollY) {
+		if (mDirty) rebuild();
+		return mHitTester.getIndex(x, y, scrollY);
+	}
+
+	public int getGridCount() {
+		return mGridCount;
+	}
+
+	public int getGridRowCount() {
+		return mColCount > 0 ? (mGridCount + mColCount - 1) / mColCount : 0;
+	}
+
+	public boolean isTray(int position) {
+		return position >= mGridCount;
+	}
+
+	private void rebuild() {
+		int length = mItemCount << 1;
+		if (mCells.length < length) {
+			mCells = new int[length];
+		}
+
+		int size = mChildSize;
+		int col = 0, row = 0;
+		for (int i = 0; i < mGridCount; i++) {
+			mCells[i << 1] = size * col;
+			mCells[(i << 1) + 1] = size * row;
+			if (++col == mColCount) {
+				col = 0;
+				row++;
+			}
+		}
+
+		int trayTop = getTrayTop();
+		for (int i = mGridCount; i < mItemCount; i++) {
+			mCells[i << 1] = size * (i - mGridCount);
+			mCells[(i << 1) + 1] = trayTop;
+		}
+
+		mHitTester.configure(mColCount, mChildSize, mGridCount, mItemCount - mGridCount, trayTop);
+		mDirty = false;
+	}
+}
@@ -0,0 +1,127 @@
+package com.test.springboard;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+import android.widget.ImageView;
+
+/**
+ * Shared cache of icon bitmaps. Every (resource, size) pair is decoded
+ * once, on a background thread, straight at the size the cell shows it
+ * at, and the resulting bitmap is shared by every ImageView showing that
+ * icon. Bitmaps are evicted in LRU order once the byte budget is exceeded.
+ *
+ * All public methods except getIconBlocking() must be called on the UI thread.
+ */
+public class IconCache {
+
+	private final String TAG = "IconCache";
+
+	private final Resources mResources;
+	private final AsyncBitmapCache mCache;
+
+	/**
+	 * @param resources - resources the icons are decoded from
+	 * @param maxBytes - byte budget of the cached bitmaps
+	 */
+	public IconCache(Resources resources, int maxBytes) {
+		mResources = resources;
+		mCache = new AsyncBitmapCache(TAG, maxBytes);
+	}
+
+	/**
+	 * Shows the given drawable resource in the view, decoded as a
+	 * size x size bitmap. A cached bitmap is set right away, otherwise
+	 * the view is cleared and gets the bitmap once it has been decoded.
+	 * @param view - view to show the icon in
+	 * @param resId - drawable resource of the icon
+	 * @param size - width and height the icon is shown at, in pixels
+	 */
+	public void loadIcon(ImageView view, int resId, int size) {
+		Long key = Long.valueOf(((long) resId << 32) | size);
+		if (mCache.bind(view, key)) return;
+
+		final int decodeResId = resId;
+		final int decodeSize = size;
+		mCache.produce(key, new AsyncBitmapCache.Producer() {
+			@Override
+			public Bitmap produce() {
+				return decode(decodeResId, decodeSize);
+			}
+		});
+	}
+
+	/**
+	 * Returns the cached bitmap for the icon, or null if it has not
+	 * been decoded yet or was evicted.
+	 */
+	public Bitmap getCachedIcon(int resId, int size) {
+		return mCache.get(Long.valueOf(((long) resId << 32) | size));
+	}
+
+	/**
+	 * Returns the icon decoded as a size x size bitmap, decoding and
+	 * caching it on the calling thread if needed. Unlike the other
+	 * methods this one is meant for background threads.
+	 */
+	public Bitmap getIconBlocking(int resId, int size) {
+		Long key = Long.valueOf(((long) resId << 32) | size);
+		Bitmap bitmap = mCache.get(key);
+		if (bitmap == null) {
+			bitmap = decode(resId, size);
+			if (bitmap != null) mCache.put(key, bitmap);
+		}
+		return bitmap;
+	}
+
+	/**
+	 * Forgets the icon last asked for by the view, so a decode still in
+	 * flight is not set on a view that now shows something else.
+	 */
+	public void cancel(ImageView view) {
+		mCache.cancel(view);
+	}
+
+	public void evictAll() {
+		mCache.evictAll();
+	}
+
+	/**
+	 * Stops the decoder thread. Pending decodes are dropped.
+	 */
+	public void shutdown() {
+		mCache.shutdown();
+	}
+
+	// Runs on the decoder thread. Subsamples while decoding so the full
+	// size image is never held in memory, then scales to the exact size.
+	private Bitmap decode(int resId, int size) {
+		if (size <= 0) return null;
+
+		BitmapFactory.Options options = new BitmapFactory.Options();
+		options.inJustDecodeBounds = true;
+		options.inScaled = false;
+		BitmapFactory.decodeResource(mResources, resId, options);
+		if (options.outWidth <= 0 || options.outHeight <= 0) {
+			Log.w(SpringboardActivity.LOGTAG, TAG + " - cannot decode resource " + resId);
+			return null;
+		}
+
+		int sampleSize = 1;
+		while (options.outWidth / (sampleSize * 2) >= size && options.outHeight / (sampleSize * 2) >= size) {
+			sampleSize *= 2;
+		}
+		options.inJustDecodeBounds = false;
+		options.inSampleSize = sampleSize;
+		Bitmap bitmap = BitmapFactory.decodeResource(mResources, resId, options);
+		if (bitmap == null) return null;
+
+		if (bitmap.getWidth() != size || bitmap.getHeight() != size) {
+			Bitmap scaled = Bitmap.createScaledBitmap(bitmap, size, size, true);
+			if (scaled != bitmap) bitmap.recycle();
+			bitmap = scaled;
+		}
+		return bitmap;
+	}
+}
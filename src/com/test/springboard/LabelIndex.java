@@ -0,0 +1,234 @@
+package com.test.springboard;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * Case insensitive substring index over item labels.
+ *
+ * Every label is kept lower cased next to a 64 bit mask of the
+ * characters it contains. A label can only contain the query if its
+ * mask covers the query's mask, so most labels are rejected with a
+ * single AND before any string is compared.
+ *
+ * Queries refine each other. Every match of a query contains a match
+ * of each of its substrings, so when the user types another character
+ * only the previous matches are scanned again. The result of every
+ * query since the last full scan is kept, deleting a character goes
+ * back to the matching earlier result without scanning at all. Adding,
+ * renaming or removing an item drops the kept results.
+ *
+ * Matches come back in slot order. Items get the next free slot when
+ * added, moveToSlot() puts them in any other order.
+ */
+public class LabelIndex<T> {
+
+	private static final int[] NO_MATCHES = new int[0];
+
+	private Object[] mItems = new Object[16];
+	private String[] mLabels = new String[16];	// Lower cased.
+	private long[] mMasks = new long[16];
+	private int[] mMatchStamps = new int[16];	// Equal to mStamp while the slot matches the last query.
+	private int mSize = 0;
+	private final HashMap<Object, Integer> mSlots = new HashMap<Object, Integer>();
+
+	// Queries since the last full scan, each one containing the one before,
+	// with the slots each of them matched.
+	private final ArrayList<String> mQueries = new ArrayList<String>();
+	private final ArrayList<int[]> mResults = new ArrayList<int[]>();
+	private int mStamp = 1;
+	private int[] mResult = NO_MATCHES;	// Slots matching the last query.
+
+	public int size() {
+		return mSize;
+	}
+
+	/**
+	 * Adds the item, or updates its label if it is already indexed.
+	 * A null label is indexed as an empty one.
+	 */
+	public void put(T item, CharSequence label) {
+		String lower = label != null ? label.toString().toLowerCase(Locale.US) : "";
+		Integer slot = mSlots.get(item);
+		int i;
+		if (slot != null) {
+			i = slot.intValue();
+			if (lower.equals(mLabels[i])) return;
+		} else {
+			ensureCapacity(mSize + 1);
+			i = mSize++;
+			mItems[i] = item;
+			mMatchStamps[i] = 0;
+			mSlots.put(item, Integer.valueOf(i));
+		}
+		mLabels[i] = lower;
+		mMasks[i] = mask(lower);
+		invalidate();
+	}
+
+	public void remove(T item) {
+		Integer slot = mSlots.remove(item);
+		if (slot == null) return;
+		// Fill the hole with the last slot.
+		int i = slot.intValue();
+		int last = --mSize;
+		if (i != last) {
+			mItems[i] = mItems[last];
+			mLabels[i] = mLabels[last];
+			mMasks[i] = mMasks[last];
+			mMatchStamps[i] = mMatchStamps[last];
+			mSlots.put(mItems[i], Integer.valueOf(i));
+		}
+		mItems[last] = null;
+		mLabels[last] = null;
+		invalidate();
+	}
+
+	public void clear() {
+		for (int i = 0; i < mSize; i++) {
+			mItems[i] = null;
+			mLabels[i] = null;
+		}
+		mSize = 0;
+		mSlots.clear();
+		invalidate();
+	}
+
+	/**
+	 * Runs the query, matches are then told by matches(). An empty
+	 * query matches every item.
+	 * @return number of matching items
+	 */
+	public int query(CharSequence query) {
+		String lower = query != null ? query.toString().toLowerCase(Locale.US) : "";
+
+		// Go back to the longest earlier query the new one contains.
+		int depth = mQueries.size();
+		while (depth > 0 && !lower.contains(mQueries.get(depth - 1))) {
+			depth--;
+		}
+		for (int i = mQueries.size() - 1; i >= depth; i--) {
+			mQueries.remove(i);
+			mResults.remove(i);
+		}
+
+		int[] result;
+		if (depth > 0 && mQueries.get(depth - 1).equals(lower)) {
+			result = mResults.get(depth - 1);
+		} else {
+			result = scan(lower, depth > 0 ? mResults.get(depth - 1) : null);
+			mQueries.add(lower);
+			mResults.add(result);
+		}
+
+		mResult = result;
+		mStamp++;
+		for (int i = 0; i < result.length; i++) {
+			mMatchStamps[result[i]] = mStamp;
+		}
+		return result.length;
+	}
+
+	/**
+	 * Whether the item matched the last query. False for every item
+	 * after the index changed, until the next query.
+	 */
+	public boolean matches(T item) {
+		Integer slot = mSlots.get(item);
+		return slot != null && mMatchStamps[slot.intValue()] == mStamp;
+	}
+
+	/**
+	 * Returns the slot of a match of the last query, matches are in slot
+	 * order. Valid until the index changes.
+	 * @param i - from 0 to the count the last query() returned
+	 */
+	public int getMatchSlot(int i) {
+		return mResult[i];
+	}
+
+	/**
+	 * Moves the item to the given slot, the item there takes the old slot
+	 * of this one. Drops the kept results if anything moved.
+	 * @param slot - from 0 to size() - 1
+	 */
+	public void moveToSlot(T item, int slot) {
+		Integer current = mSlots.get(item);
+		if (current == null || current.intValue() == slot) return;
+		int i = current.intValue();
+		Object other = mItems[slot];
+		String label = mLabels[slot];
+		long mask = mMasks[slot];
+		mItems[slot] = mItems[i];
+		mLabels[slot] = mLabels[i];
+		mMasks[slot] = mMasks[i];
+		mItems[i] = other;
+		mLabels[i] = label;
+		mMasks[i] = mask;
+		mSlots.put(item, Integer.valueOf(slot));
+		mSlots.put(other, current);
+		invalidate();
+	}
+
+	// Returns the slots matching the query, looking only at the given
+	// candidates or at every slot if there are none.
+	private int[] scan(String query, int[] candidates) {
+		long queryMask = mask(query);
+		int count = candidates != null ? candidates.length : mSize;
+		int[] matches = new int[count];
+		int found = 0;
+		for (int c = 0; c < count; c++) {
+			int i = candidates != null ? candidates[c] : c;
+			if ((mMasks[i] & queryMask) != queryMask) continue;
+			if (mLabels[i].indexOf(query) < 0) continue;
+			matches[found++] = i;
+		}
+		if (found == count) return matches;
+		int[] result = new int[found];
+		System.arraycopy(matches, 0, result, 0, found);
+		return result;
+	}
+
+	private void invalidate() {
+		mQueries.clear();
+		mResults.clear();
+		mResult = NO_MATCHES;
+		mStamp++;
+	}
+
+	// Letters and digits get a bit each, everything else shares the rest.
+	private static long mask(String s) {
+		long mask = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			int bit;
+			if (c >= 'a' && c <= 'z') {
+				bit = c - 'a';
+			} else if (c >= '0' && c <= '9') {
+				bit = 26 + c - '0';
+			} else {
+				bit = 36 + c % 28;
+			}
+			mask |= 1L << bit;
+		}
+		return mask;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= mItems.length) return;
+		int newCapacity = Math.max(capacity, mItems.length * 2);
+		Object[] items = new Object[newCapacity];
+		System.arraycopy(mItems, 0, items, 0, mSize);
+		mItems = items;
+		String[] labels = new String[newCapacity];
+		System.arraycopy(mLabels, 0, labels, 0, mSize);
+		mLabels = labels;
+		long[] masks = new long[newCapacity];
+		System.arraycopy(mMasks, 0, masks, 0, mSize);
+		mMasks = masks;
+		int[] stamps = new int[newCapacity];
+		System.arraycopy(mMatchStamps, 0, stamps, 0, mSize);
+		mMatchStamps = stamps;
+	}
+}
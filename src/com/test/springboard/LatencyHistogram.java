@@ -0,0 +1,98 @@
+package com.test.springboard;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with power of two microsecond buckets.
+ * Bucket 0 holds samples below 1us, bucket n holds samples in
+ * [2^(n-1), 2^n) microseconds and the last bucket everything above.
+ * Recording is a couple of atomic increments and never allocates,
+ * so it is safe to call from the UI thread on every event.
+ */
+public class LatencyHistogram {
+
+	public static final int BUCKET_COUNT = 32;
+
+	private final String mName;
+	private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong mCount = new AtomicLong();
+	private final AtomicLong mTotalNanos = new AtomicLong();
+	private final AtomicLong mMaxNanos = new AtomicLong();
+
+	public LatencyHistogram(String name) {
+		mName = name;
+	}
+
+	public String getName() {
+		return mName;
+	}
+
+	public void record(long nanos) {
+		if (nanos < 0) nanos = 0;
+		mBuckets.incrementAndGet(bucketOf(nanos / 1000));
+		mCount.incrementAndGet();
+		mTotalNanos.addAndGet(nanos);
+		long max;
+		while (nanos > (max = mMaxNanos.get())) {
+			if (mMaxNanos.compareAndSet(max, nanos)) break;
+		}
+	}
+
+	public long getCount() {
+		return mCount.get();
+	}
+
+	public long getMeanNanos() {
+		long count = mCount.get();
+		return count > 0 ? mTotalNanos.get() / count : 0;
+	}
+
+	public long getMaxNanos() {
+		return mMaxNanos.get();
+	}
+
+	/**
+	 * Returns the number of samples in the given bucket.
+	 */
+	public long getBucketCount(int bucket) {
+		return mBuckets.get(bucket);
+	}
+
+	/**
+	 * Returns the upper bound, in microseconds, of the bucket holding
+	 * the given percentile (0 - 100) of the samples.
+	 */
+	public long getPercentileMicros(double percentile) {
+		long count = mCount.get();
+		if (count == 0) return 0;
+		long rank = (long) Math.ceil(count * percentile / 100d);
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += mBuckets.get(i);
+			if (seen >= rank) return 1L << i;
+		}
+		return 1L << (BUCKET_COUNT - 1);
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			mBuckets.set(i, 0);
+		}
+		mCount.set(0);
+		mTotalNanos.set(0);
+		mMaxNanos.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return mName + " count: " + getCount() + " mean: " + (getMeanNanos() / 1000) + "us"
+				+ " p50: " + getPercentileMicros(50) + "us p99: " + getPercentileMicros(99) + "us"
+				+ " max: " + (getMaxNanos() / 1000) + "us";
+	}
+
+	private static int bucketOf(long micros) {
+		int bucket = 64 - Long.numberOfLeadingZeros(micros);
+		return bucket < BUCKET_COUNT ? bucket : BUCKET_COUNT - 1;
+	}
+}
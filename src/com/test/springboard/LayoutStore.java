@@ -0,0 +1,538 @@
+package com.test.springboard;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.SparseArray;
+
+/**
+ * Durable icon order, kept as order[position] = item id.
+ *
+ * Positions hold either one of the itemCount base items, ids 0 to
+ * itemCount - 1, or a folder, with an id of itemCount or more. The
+ * base items a folder holds are kept in a folder table next to the
+ * order. Every base item is either at a position of its own or in
+ * exactly one folder, a layout breaking that is never written and a
+ * saved one breaking it is never loaded.
+ *
+ * Every reorder is appended to a log as one fixed size record on a
+ * background thread. Once the log holds COMPACT_THRESHOLD records the
+ * whole order is written as a binary snapshot and the log starts over.
+ * On startup the snapshot is memory mapped and read with a single bulk
+ * copy, only the short log tail is replayed on top of it. That runs on
+ * the writer thread and the layout is handed back to the UI thread
+ * through an OnLoadedListener, so startup never waits on the disk.
+ *
+ * Nothing is ever overwritten in place. Snapshots go to a temp file
+ * that is synced and renamed over the old one, log records carry a
+ * checksum so a torn tail is ignored, and the log is tied to its
+ * snapshot by a generation number so a log that was not reset before
+ * a crash is never applied twice.
+ *
+ * All public methods must be called on the UI thread.
+ */
+public class LayoutStore implements ReorderListener {
+
+	private final String TAG = "LayoutStore";
+
+	private static final int SNAPSHOT_MAGIC = 0x53424c53;		// Order only, written before folders existed.
+	private static final int FOLDER_SNAPSHOT_MAGIC = 0x53424c46;	// Order followed by the folder table.
+	private static final int LOG_MAGIC = 0x53424c4c;
+	private static final int SNAPSHOT_HEADER_SIZE = 16;	// magic, generation, count, checksum
+	private static final int FOLDER_SNAPSHOT_HEADER_SIZE = 20;	// magic, generation, count, folder table length, checksum
+	private static final int LOG_HEADER_SIZE = 8;		// magic, generation
+	private static final int RECORD_SIZE = 16;			// kind, a, b, checksum
+	private static final int KIND_MOVE = 1;
+	private static final int KIND_SWAP = 2;
+	private static final int COMPACT_THRESHOLD = 256;	// Log records written before compacting.
+
+	private final File mSnapshotFile;
+	private final File mTempFile;
+	private final File mLogFile;
+	private final ExecutorService mWriter;
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+	// UI thread state.
+	private int[] mOrder = new int[0];
+	private SparseArray<int[]> mFolders = new SparseArray<int[]>();	// Folder id to the ids of its items.
+	private int mBaseItemCount = 0;
+	private int mGeneration = 0;
+	private int mLogRecords = 0;
+	private boolean mLoaded = false;
+	private boolean mClosed = false;
+
+	// Writer thread state.
+	private FileOutputStream mLogStream;
+	private final ByteBuffer mRecord = ByteBuffer.allocate(RECORD_SIZE);
+
+	/**
+	 * Interface definition for a callback to be invoked when the saved
+	 * layout has been read.
+	 */
+	public interface OnLoadedListener {
+		/**
+		 * Called on the UI thread once the layout is in the store.
+		 */
+		void onLayoutLoaded();
+	}
+
+	/**
+	 * @param dir - directory the snapshot and the log are kept in
+	 */
+	public LayoutStore(File dir) {
+		mSnapshotFile = new File(dir, "layout.snap");
+		mTempFile = new File(dir, "layout.snap.tmp");
+		mLogFile = new File(dir, "layout.log");
+		mWriter = BackgroundExecutor.newSingleThread(TAG);
+	}
+
+	/**
+	 * Restores the saved layout of itemCount base items on the writer
+	 * thread. If nothing was saved, or the saved layout does not hold
+	 * exactly the itemCount base items, the identity order without
+	 * folders is used and stored from now on. The store is empty until
+	 * the listener is called, and the listener is not called once the
+	 * store is closed.
+	 * @param itemCount - number of base items
+	 * @param listener - called on the UI thread once the layout is loaded
+	 */
+	public void load(final int itemCount, final OnLoadedListener listener) {
+		mBaseItemCount = itemCount;
+		mWriter.execute(new Runnable() {
+			@Override
+			public void run() {
+				readLayout(itemCount, listener);
+			}
+		});
+	}
+
+	public boolean isLoaded() {
+		return mLoaded;
+	}
+
+	public int getItemCount() {
+		return mOrder.length;
+	}
+
+	/**
+	 * Returns the id of the item shown at the given position.
+	 */
+	public int getItemAt(int position) {
+		return mOrder[position];
+	}
+
+	/**
+	 * Returns the ids of the base items in the folder, or null if the id
+	 * is not a folder. Owned by the store.
+	 */
+	public int[] getFolderItems(int folderId) {
+		return mFolders.get(folderId);
+	}
+
+	/**
+	 * Replaces the whole layout, for changes that are not a single move
+	 * or swap such as items being grouped into a folder. Written as a
+	 * snapshot. A layout that does not hold every base item exactly once
+	 * is refused and the stored one is kept.
+	 * @param order - order[position] = item or folder id
+	 * @param folders - folder id to the ids of its items, for every folder in order
+	 * @return false if the layout was refused
+	 */
+	public boolean replace(int[] order, SparseArray<int[]> folders) {
+		if (!isValidLayout(order, folders, mBaseItemCount)) {
+			Log.w(SpringboardActivity.LOGTAG, TAG + " - refusing a layout that does not hold all " + mBaseItemCount + " items");
+			return false;
+		}
+		mOrder = order.clone();
+		mFolders = new SparseArray<int[]>(folders.size());
+		for (int i = 0; i < folders.size(); i++) {
+			mFolders.put(folders.keyAt(i), folders.valueAt(i).clone());
+		}
+		compact();
+		return true;
+	}
+
+	@Override
+	public void onItemMoved(int fromPos, int toPos) {
+		if (!isValid(fromPos) || !isValid(toPos) || fromPos == toPos) return;
+		PositionModel.moveInArray(mOrder, fromPos, toPos);
+		append(KIND_MOVE, fromPos, toPos);
+	}
+
+	@Override
+	public void onItemsSwapped(int posA, int posB) {
+		if (!isValid(posA) || !isValid(posB) || posA == posB) return;
+		int id = mOrder[posA];
+		mOrder[posA] = mOrder[posB];
+		mOrder[posB] = id;
+		append(KIND_SWAP, posA, posB);
+	}
+
+	// A batch does not fit a fixed size log record, it is written as a
+	// snapshot, which is a single write however many items moved.
+	@Override
+	public void onItemsMoved(int[] positions, int count, int toPos) {
+		if (count == 0 || !isValid(positions[0]) || !isValid(positions[count - 1])) return;
+		if (toPos < 0 || toPos + count > mOrder.length) return;
+		PositionModel.moveAllInArray(mOrder, positions, count, toPos);
+		compact();
+	}
+
+	/**
+	 * Writes the current order as a new snapshot and starts a new log.
+	 */
+	public void compact() {
+		final int[] snapshot = mOrder.clone();
+		final int[] folderTable = writeFolderTable(mFolders);
+		final int generation = ++mGeneration;
+		mLogRecords = 0;
+		mWriter.execute(new Runnable() {
+			@Override
+			public void run() {
+				writeSnapshot(generation, snapshot, folderTable);
+			}
+		});
+	}
+
+	/**
+	 * Compacts if there is anything in the log and stops the writer once
+	 * everything queued so far is on disk.
+	 */
+	public void close() {
+		mClosed = true;
+		if (mLogRecords > 0) compact();
+		mWriter.execute(new Runnable() {
+			@Override
+			public void run() {
+				closeLog();
+			}
+		});
+		mWriter.shutdown();
+	}
+
+	private void append(final int kind, final int a, final int b) {
+		mWriter.execute(new Runnable() {
+			@Override
+			public void run() {
+				writeRecord(kind, a, b);
+			}
+		});
+		if (++mLogRecords >= COMPACT_THRESHOLD) compact();
+	}
+
+	// Runs on the writer thread. Reads the snapshot, replays the log and
+	// continues the log or writes a reset layout before the UI thread
+	// gets the result, so every record appended from then on lands in
+	// the right log.
+	private void readLayout(int itemCount, final OnLoadedListener listener) {
+		int[] order = null;
+		SparseArray<int[]> folders = new SparseArray<int[]>();
+		int generation = 0;
+		try {
+			RandomAccessFile file = new RandomAccessFile(mSnapshotFile, "r");
+			try {
+				FileChannel channel = file.getChannel();
+				long size = channel.size();
+				if (size >= SNAPSHOT_HEADER_SIZE) {
+					MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+					int magic = buffer.getInt();
+					int snapshotGeneration = buffer.getInt();
+					int count = buffer.getInt();
+					// A truncated header reads as an empty table and fails the size check.
+					int tableLength = magic == FOLDER_SNAPSHOT_MAGIC && size >= FOLDER_SNAPSHOT_HEADER_SIZE ? buffer.getInt() : 0;
+					int checksum = buffer.getInt();
+					int headerSize = magic == FOLDER_SNAPSHOT_MAGIC ? FOLDER_SNAPSHOT_HEADER_SIZE : SNAPSHOT_HEADER_SIZE;
+					if ((magic == SNAPSHOT_MAGIC || magic == FOLDER_SNAPSHOT_MAGIC) && count >= 0 && tableLength >= 0
+							&& size == headerSize + 4L * (count + tableLength)) {
+						int[] data = new int[count + tableLength];
+						buffer.asIntBuffer().get(data);
+						if (checksum(snapshotGeneration, data, data.length) == checksum
+								&& readFolderTable(data, count, folders)) {
+							order = new int[count];
+							System.arraycopy(data, 0, order, 0, count);
+							generation = snapshotGeneration;
+						}
+					}
+				}
+			} finally {
+				file.close();
+			}
+		} catch (IOException e) {
+			// No snapshot yet, start from the identity order below.
+		}
+		if (order == null) {
+			order = identity(itemCount);
+			folders.clear();
+		}
+
+		int logLength = replayLog(order, generation);
+		final int logRecords;
+		if (isValidLayout(order, folders, itemCount)) {
+			openLog(generation, logLength);
+			logRecords = logLength > 0 ? (logLength - LOG_HEADER_SIZE) / RECORD_SIZE : 0;
+		} else {
+			Log.w(SpringboardActivity.LOGTAG, TAG + " - saved layout does not match " + itemCount + " items, resetting");
+			order = identity(itemCount);
+			folders = new SparseArray<int[]>();
+			writeSnapshot(++generation, order, writeFolderTable(folders));
+			logRecords = 0;
+		}
+
+		final int[] loadedOrder = order;
+		final SparseArray<int[]> loadedFolders = folders;
+		final int loadedGeneration = generation;
+		mHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				if (mClosed) return;
+				mOrder = loadedOrder;
+				mFolders = loadedFolders;
+				mGeneration = loadedGeneration;
+				mLogRecords = logRecords;
+				mLoaded = true;
+				listener.onLayoutLoaded();
+			}
+		});
+	}
+
+	private boolean isValid(int position) {
+		return position >= 0 && position < mOrder.length;
+	}
+
+	// Applies the records of the log belonging to the given snapshot
+	// generation and returns the length of the valid part of the log,
+	// or 0 if the log is missing or belongs to another snapshot.
+	private int replayLog(int[] order, int generation) {
+		byte[] bytes;
+		try {
+			FileInputStream in = new FileInputStream(mLogFile);
+			try {
+				long length = mLogFile.length();
+				bytes = new byte[(int) length];
+				int read = 0;
+				while (read < bytes.length) {
+					int n = in.read(bytes, read, bytes.length - read);
+					if (n < 0) break;
+					read += n;
+				}
+				if (read < bytes.length) return 0;
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return 0;
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		if (bytes.length < LOG_HEADER_SIZE || buffer.getInt() != LOG_MAGIC || buffer.getInt() != generation) {
+			return 0;
+		}
+		int records = 0;
+		while (buffer.remaining() >= RECORD_SIZE) {
+			int kind = buffer.getInt();
+			int a = buffer.getInt();
+			int b = buffer.getInt();
+			int check = buffer.getInt();
+			// A torn or garbled record ends the valid part of the log.
+			if (check != recordChecksum(kind, a, b)) break;
+			if (a < 0 || b < 0 || a >= order.length || b >= order.length) break;
+			if (kind == KIND_MOVE) {
+				PositionModel.moveInArray(order, a, b);
+			} else if (kind == KIND_SWAP) {
+				int id = order[a];
+				order[a] = order[b];
+				order[b] = id;
+			} else {
+				break;
+			}
+			records++;
+		}
+		return LOG_HEADER_SIZE + records * RECORD_SIZE;
+	}
+
+	// Runs on the writer thread. Continues the existing log after its last
+	// valid record, or starts a new one if it does not belong to the snapshot.
+	private void openLog(int generation, int validLength) {
+		closeLog();
+		try {
+			if (validLength >= LOG_HEADER_SIZE) {
+				RandomAccessFile file = new RandomAccessFile(mLogFile, "rw");
+				try {
+					file.setLength(validLength);
+				} finally {
+					file.close();
+				}
+				mLogStream = new FileOutputStream(mLogFile, true);
+			} else {
+				startLog(generation);
+			}
+		} catch (IOException e) {
+			Log.w(SpringboardActivity.LOGTAG, TAG + " - cannot open log", e);
+			closeLog();
+		}
+	}
+
+	// Runs on the writer thread.
+	private void startLog(int generation) throws IOException {
+		mLogStream = new FileOutputStream(mLogFile, false);
+		ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+		header.putInt(LOG_MAGIC).putInt(generation);
+		mLogStream.write(header.array());
+		mLogStream.getFD().sync();
+	}
+
+	// Runs on the writer thread. Records are not synced one by one, a
+	// record lost to a power cut only loses that move, never the layout.
+	private void writeRecord(int kind, int a, int b) {
+		if (mLogStream == null) return;
+		mRecord.clear();
+		mRecord.putInt(kind).putInt(a).putInt(b).putInt(recordChecksum(kind, a, b));
+		try {
+			mLogStream.write(mRecord.array());
+		} catch (IOException e) {
+			Log.w(SpringboardActivity.LOGTAG, TAG + " - cannot append to log", e);
+			// Later moves are picked up again by the next snapshot.
+			closeLog();
+		}
+	}
+
+	// Runs on the writer thread.
+	private void writeSnapshot(int generation, int[] order, int[] folderTable) {
+		closeLog();
+		int[] data = new int[order.length + folderTable.length];
+		System.arraycopy(order, 0, data, 0, order.length);
+		System.arraycopy(folderTable, 0, data, order.length, folderTable.length);
+		ByteBuffer buffer = ByteBuffer.allocate(FOLDER_SNAPSHOT_HEADER_SIZE + 4 * data.length);
+		buffer.putInt(FOLDER_SNAPSHOT_MAGIC).putInt(generation).putInt(order.length).putInt(folderTable.length)
+				.putInt(checksum(generation, data, data.length));
+		buffer.asIntBuffer().put(data);
+		try {
+			FileOutputStream out = new FileOutputStream(mTempFile);
+			try {
+				out.write(buffer.array());
+				out.getFD().sync();
+			} finally {
+				out.close();
+			}
+			if (!mTempFile.renameTo(mSnapshotFile)) {
+				throw new IOException("cannot rename " + mTempFile);
+			}
+			// A crash before the new log is started leaves the old log behind,
+			// its generation no longer matches and it is ignored.
+			startLog(generation);
+		} catch (IOException e) {
+			Log.w(SpringboardActivity.LOGTAG, TAG + " - cannot write snapshot", e);
+			closeLog();
+		}
+	}
+
+	private void closeLog() {
+		if (mLogStream == null) return;
+		try {
+			mLogStream.close();
+		} catch (IOException e) {
+			// Nothing left to do with it.
+		}
+		mLogStream = null;
+	}
+
+	private static int recordChecksum(int kind, int a, int b) {
+		return (kind * 0x9E3779B1) ^ (a * 0x85EBCA6B) ^ (b * 0xC2B2AE35) ^ LOG_MAGIC;
+	}
+
+	private static int checksum(int generation, int[] ids, int count) {
+		int hash = 31 * generation + count;
+		for (int i = 0; i < count; i++) {
+			hash = 31 * hash + ids[i];
+		}
+		return hash;
+	}
+
+	private static int[] identity(int count) {
+		int[] order = new int[count];
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+		}
+		return order;
+	}
+
+	// The folder table is written as (folder id, item count, item ids...)
+	// for every folder.
+	private static int[] writeFolderTable(SparseArray<int[]> folders) {
+		int length = 0;
+		for (int i = 0; i < folders.size(); i++) {
+			length += 2 + folders.valueAt(i).length;
+		}
+		int[] table = new int[length];
+		int k = 0;
+		for (int i = 0; i < folders.size(); i++) {
+			int[] items = folders.valueAt(i);
+			table[k++] = folders.keyAt(i);
+			table[k++] = items.length;
+			System.arraycopy(items, 0, table, k, items.length);
+			k += items.length;
+		}
+		return table;
+	}
+
+	// Reads the folder table following the order in data. Returns false
+	// if the table is garbled.
+	private static boolean readFolderTable(int[] data, int start, SparseArray<int[]> folders) {
+		int k = start;
+		while (k < data.length) {
+			if (data.length - k < 2) return false;
+			int id = data[k++];
+			int count = data[k++];
+			if (count < 0 || count > data.length - k) return false;
+			int[] items = new int[count];
+			System.arraycopy(data, k, items, 0, count);
+			k += count;
+			folders.put(id, items);
+		}
+		return true;
+	}
+
+	// Every base item must be at a position of its own or in exactly one
+	// folder, and every folder in the order must be in the table, once,
+	// with at least one item. Folders that are not in the order are not
+	// allowed in the table either. One pass over the order and the items
+	// of its folders, folders are marked seen after the base items.
+	private static boolean isValidLayout(int[] order, SparseArray<int[]> folders, int itemCount) {
+		boolean[] seen = new boolean[itemCount + folders.size()];
+		int seenCount = 0;
+		int foldersInOrder = 0;
+		for (int i = 0; i < order.length; i++) {
+			int id = order[i];
+			if (id < 0) return false;
+			if (id < itemCount) {
+				if (seen[id]) return false;
+				seen[id] = true;
+				seenCount++;
+				continue;
+			}
+			int folder = folders.indexOfKey(id);
+			if (folder < 0 || seen[itemCount + folder]) return false;
+			seen[itemCount + folder] = true;
+			int[] items = folders.valueAt(folder);
+			if (items == null || items.length == 0) return false;
+			for (int j = 0; j < items.length; j++) {
+				int item = items[j];
+				if (item < 0 || item >= itemCount || seen[item]) return false;
+				seen[item] = true;
+				seenCount++;
+			}
+			foldersInOrder++;
+		}
+		return seenCount == itemCount && foldersInOrder == folders.size();
+	}
+}
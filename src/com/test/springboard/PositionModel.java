@@ -0,0 +1,280 @@
+package com.test.springboard;
+
+/**
+ * Ordered position -> item model backed by a plain array.
+ * Replaces the HashMap<Integer, View> maps used by the drag containers,
+ * so lookups do not box the position and a reorder shifts the whole
+ * range between two positions with a single System.arraycopy.
+ *
+ * The model also keeps the range of positions changed since the last
+ * clearDirty(), so containers can lay out only the cells that moved.
+ */
+public class PositionModel<T> {
+
+	private Object[] mItems;
+	private Object[] mScratch = new Object[0];	// Holds the items moveAll() takes out, reused between calls.
+	private int mSize = 0;
+	private int mDirtyStart = Integer.MAX_VALUE;	// Empty dirty range while start > end.
+	private int mDirtyEnd = -1;
+
+	public PositionModel() {
+		this(16);
+	}
+
+	public PositionModel(int initialCapacity) {
+		mItems = new Object[initialCapacity > 0 ? initialCapacity : 1];
+	}
+
+	public int size() {
+		return mSize;
+	}
+
+	/**
+	 * Returns the item at the given position or null if the position
+	 * is empty or out of range.
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(int position) {
+		if (position < 0 || position >= mSize) return null;
+		return (T) mItems[position];
+	}
+
+	/**
+	 * Stores the item at the given position, growing the model if the
+	 * position is past the current end.
+	 */
+	public void put(int position, T item) {
+		if (position < 0) throw new IndexOutOfBoundsException("position: " + position);
+		ensureCapacity(position + 1);
+		mItems[position] = item;
+		if (position >= mSize) mSize = position + 1;
+		markDirty(position, position);
+	}
+
+	/**
+	 * Grows or shrinks the model to the given size. New positions
+	 * are empty, positions past the new end are cleared.
+	 */
+	public void setSize(int size) {
+		ensureCapacity(size);
+		for (int i = size; i < mSize; i++) {
+			mItems[i] = null;
+		}
+		if (size > mSize) markDirty(mSize, size - 1);
+		mSize = size;
+	}
+
+	/**
+	 * Moves the item at fromPos to toPos. Every item in between is
+	 * shifted by one towards fromPos in a single bulk copy.
+	 */
+	public void move(int fromPos, int toPos) {
+		if (fromPos == toPos) return;
+		checkPosition(fromPos);
+		checkPosition(toPos);
+		Object item = mItems[fromPos];
+		if (toPos < fromPos) {
+			System.arraycopy(mItems, toPos, mItems, toPos + 1, fromPos - toPos);
+		} else {
+			System.arraycopy(mItems, fromPos + 1, mItems, fromPos, toPos - fromPos);
+		}
+		mItems[toPos] = item;
+		markDirty(Math.min(fromPos, toPos), Math.max(fromPos, toPos));
+	}
+
+	/**
+	 * Same as move() for a plain int array, used for the primitive
+	 * tables kept in step with a model.
+	 */
+	public static void moveInArray(int[] array, int fromPos, int toPos) {
+		if (fromPos == toPos) return;
+		int value = array[fromPos];
+		if (toPos < fromPos) {
+			System.arraycopy(array, toPos, array, toPos + 1, fromPos - toPos);
+		} else {
+			System.arraycopy(array, fromPos + 1, array, fromPos, toPos - fromPos);
+		}
+		array[toPos] = value;
+	}
+
+	/**
+	 * Moves the items at the given positions next to each other, in their
+	 * current order, so that the first of them ends up at target. All
+	 * other items keep their order. The remaining items are compacted in
+	 * one pass over the selected range, a bulk copy per run between two
+	 * selected items, and the gap for the moved items is opened with one
+	 * more bulk copy, so moving count items costs about as much as one
+	 * move() across the same range.
+	 * @param positions - positions of the items to move, sorted ascending
+	 * @param count - number of positions used
+	 * @param target - position of the first moved item after the move
+	 */
+	public void moveAll(int[] positions, int count, int target) {
+		if (count == 0) return;
+		checkPosition(positions[0]);
+		checkPosition(positions[count - 1]);
+		if (target < 0 || target + count > mSize) {
+			throw new IndexOutOfBoundsException("target: " + target + " count: " + count + " size: " + mSize);
+		}
+		if (mScratch.length < count) mScratch = new Object[mItems.length];
+		Object[] moved = mScratch;
+		int first = positions[0];
+		int last = positions[count - 1];
+		int write = compact(mItems, moved, positions, count);
+		if (target <= write) {
+			System.arraycopy(mItems, target, mItems, target + count, write - target);
+		} else {
+			System.arraycopy(mItems, last + 1, mItems, write, target - write);
+		}
+		System.arraycopy(moved, 0, mItems, target, count);
+		// Do not keep the moved items alive from the scratch buffer.
+		for (int k = 0; k < count; k++) {
+			moved[k] = null;
+		}
+		markDirty(Math.min(first, target), Math.max(last, target + count - 1));
+	}
+
+	/**
+	 * Same as moveAll() for a plain int array.
+	 */
+	public static void moveAllInArray(int[] array, int[] positions, int count, int target) {
+		if (count == 0) return;
+		int[] moved = new int[count];
+		int last = positions[count - 1];
+		int write = positions[0];
+		for (int k = 0; k < count; k++) {
+			moved[k] = array[positions[k]];
+			int runStart = positions[k] + 1;
+			int runLength = (k + 1 < count ? positions[k + 1] : last + 1) - runStart;
+			System.arraycopy(array, runStart, array, write, runLength);
+			write += runLength;
+		}
+		if (target <= write) {
+			System.arraycopy(array, target, array, target + count, write - target);
+		} else {
+			System.arraycopy(array, last + 1, array, write, target - write);
+		}
+		System.arraycopy(moved, 0, array, target, count);
+	}
+
+	/**
+	 * Finds the largest set of items that kept their relative order, the
+	 * longest increasing run of their previous positions. Those items can
+	 * stay put while the others move around them. Takes O(n log n).
+	 * @param previous - previous position of the item now at each position, or -1 for a new item
+	 * @param count - number of positions used
+	 * @param stable - set to true for the items in the set, false for all others
+	 * @return number of items in the set
+	 */
+	public static int markLongestIncreasing(int[] previous, int count, boolean[] stable) {
+		int[] tails = new int[count];	// Index of the smallest last item of a run of each length.
+		int[] links = new int[count];	// Index of the item before each item in its run.
+		int length = 0;
+		for (int i = 0; i < count; i++) {
+			stable[i] = false;
+			int value = previous[i];
+			if (value < 0) continue;
+			int low = 0, high = length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (previous[tails[mid]] < value) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			links[i] = low > 0 ? tails[low - 1] : -1;
+			tails[low] = i;
+			if (low == length) length++;
+		}
+		for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = links[i]) {
+			stable[i] = true;
+		}
+		return length;
+	}
+
+	/**
+	 * Returns the position of the given item, compared by identity,
+	 * or -1 if it is not in the model.
+	 */
+	public int indexOf(T item) {
+		for (int i = 0; i < mSize; i++) {
+			if (mItems[i] == item) return i;
+		}
+		return -1;
+	}
+
+	public void clear() {
+		for (int i = 0; i < mSize; i++) {
+			mItems[i] = null;
+		}
+		mSize = 0;
+		clearDirty();
+	}
+
+	/**
+	 * Adds the positions from start to end, inclusive, to the dirty range.
+	 */
+	public void markDirty(int start, int end) {
+		if (start < mDirtyStart) mDirtyStart = start;
+		if (end > mDirtyEnd) mDirtyEnd = end;
+	}
+
+	public void markAllDirty() {
+		if (mSize > 0) markDirty(0, mSize - 1);
+	}
+
+	public boolean isDirty() {
+		return mDirtyStart <= mDirtyEnd;
+	}
+
+	/**
+	 * First dirty position, only meaningful while isDirty() is true.
+	 */
+	public int getDirtyStart() {
+		return mDirtyStart;
+	}
+
+	/**
+	 * Last dirty position, clamped to the current size.
+	 */
+	public int getDirtyEnd() {
+		return Math.min(mDirtyEnd, mSize - 1);
+	}
+
+	public void clearDirty() {
+		mDirtyStart = Integer.MAX_VALUE;
+		mDirtyEnd = -1;
+	}
+
+	// Takes the selected items out of [first selected, last selected] into
+	// moved and packs the runs of other items in between to the front of
+	// that range, one bulk copy per run. Returns the position right after
+	// the packed items, where the gap starts.
+	private static int compact(Object[] items, Object[] moved, int[] positions, int count) {
+		int last = positions[count - 1];
+		int write = positions[0];
+		for (int k = 0; k < count; k++) {
+			moved[k] = items[positions[k]];
+			int runStart = positions[k] + 1;
+			int runLength = (k + 1 < count ? positions[k + 1] : last + 1) - runStart;
+			System.arraycopy(items, runStart, items, write, runLength);
+			write += runLength;
+		}
+		return write;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= mItems.length) return;
+		int newCapacity = Math.max(capacity, mItems.length * 2);
+		Object[] items = new Object[newCapacity];
+		System.arraycopy(mItems, 0, items, 0, mSize);
+		mItems = items;
+	}
+
+	private void checkPosition(int position) {
+		if (position < 0 || position >= mSize) {
+			throw new IndexOutOfBoundsException("position: " + position + " size: " + mSize);
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package com.test.springboard;
+
+/**
+ * Receives every reorder a drag container applies to its model.
+ * Positions are layout positions, tray positions follow the grid ones.
+ */
+public interface ReorderListener {
+
+	/**
+	 * The item at fromPos was moved to toPos and every item in between
+	 * shifted by one towards fromPos.
+	 */
+	void onItemMoved(int fromPos, int toPos);
+
+	/**
+	 * The items at the two positions traded places.
+	 */
+	void onItemsSwapped(int posA, int posB);
+
+	/**
+	 * The items at the given positions, sorted ascending, were moved next
+	 * to each other in their order, the first of them to toPos. All other
+	 * items kept their order. Only the first count positions are used.
+	 */
+	void onItemsMoved(int[] positions, int count, int toPos);
+}
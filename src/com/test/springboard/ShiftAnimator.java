@@ -0,0 +1,263 @@
+package com.test.springboard;
+
+import java.util.Arrays;
+
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.animation.AnimationUtils;
+import android.view.animation.Interpolator;
+
+/**
+ * Single animation driver for icons shifting between cells. All views in
+ * flight are advanced from one callback per display frame, posted on the
+ * host container, instead of each view running its own animation.
+ *
+ * Views are moved for real with offsetLeftAndRight/offsetTopAndBottom,
+ * the closest thing to translation properties on this API level, so when
+ * a shift finishes the view already sits at its final layout position and
+ * there is no fill-after state left to reconcile.
+ */
+public class ShiftAnimator implements Runnable {
+
+	private final View mHost;
+	private final long mDuration;
+	private final Interpolator mInterpolator = new AccelerateDecelerateInterpolator();
+
+	// In-flight shifts, stored as parallel arrays so ticking a frame
+	// and starting a shift do not allocate once the arrays have grown.
+	private View[] mViews = new View[16];
+	private int[] mFromX = new int[16];
+	private int[] mFromY = new int[16];
+	private int[] mToX = new int[16];
+	private int[] mToY = new int[16];
+	private long[] mStartTimes = new long[16];
+	private int mCount = 0;
+
+	// Open addressing table from view identity to slot + 1, 0 marks an
+	// empty entry. Kept at least twice the slot capacity so lookups, done
+	// for every shift and every laid out cell, stay constant time.
+	private int[] mTable = new int[32];
+
+	private boolean mScheduled = false;
+	private long mBatchStartTime = -1;		// Start time shared by a batch, or -1.
+	private long mLastFrameNanos = 0;		// Only used for tracing frame times.
+
+	/**
+	 * @param host - container whose children are animated, ticks are posted on it
+	 * @param duration - duration of a single shift in milliseconds
+	 */
+	public ShiftAnimator(View host, long duration) {
+		mHost = host;
+		mDuration = duration;
+	}
+
+	/**
+	 * Starts shifting the view from where it currently is to the given
+	 * layout position. A view that is already shifting is retargeted
+	 * from its current position.
+	 */
+	public void animateTo(View view, int toX, int toY) {
+		long traceStart = SpringboardTrace.ENABLED ? SpringboardTrace.begin() : 0;
+		int slot = indexOf(view);
+		if (slot < 0) {
+			if (view.getLeft() == toX && view.getTop() == toY) return;
+			slot = mCount++;
+			ensureCapacity(mCount);
+			mViews[slot] = view;
+			mTable[tableIndex(view)] = slot + 1;
+		}
+		mFromX[slot] = view.getLeft();
+		mFromY[slot] = view.getTop();
+		mToX[slot] = toX;
+		mToY[slot] = toY;
+		mStartTimes[slot] = mBatchStartTime >= 0 ? mBatchStartTime : AnimationUtils.currentAnimationTimeMillis();
+		schedule();
+		if (SpringboardTrace.ENABLED) SpringboardTrace.end(SpringboardTrace.ANIMATION_START, traceStart);
+	}
+
+	/**
+	 * Shifts started until endBatch() share one start time, so the views
+	 * of a batch move in step however long starting all of them takes.
+	 */
+	public void beginBatch() {
+		mBatchStartTime = AnimationUtils.currentAnimationTimeMillis();
+	}
+
+	public void endBatch() {
+		mBatchStartTime = -1;
+	}
+
+	/**
+	 * Stops shifting the view and leaves it where it currently is.
+	 */
+	public void cancel(View view) {
+		int slot = indexOf(view);
+		if (slot >= 0) removeAt(slot);
+	}
+
+	/**
+	 * Moves every view in flight straight to its final position.
+	 */
+	public void endAll() {
+		for (int i = 0; i < mCount; i++) {
+			View view = mViews[i];
+			view.offsetLeftAndRight(mToX[i] - view.getLeft());
+			view.offsetTopAndBottom(mToY[i] - view.getTop());
+			mViews[i] = null;
+		}
+		mCount = 0;
+		Arrays.fill(mTable, 0);
+		mHost.removeCallbacks(this);
+		mScheduled = false;
+		mHost.invalidate();
+	}
+
+	/**
+	 * Moves the start and the end of the view's shift by dy, for views
+	 * offset while in flight such as the pinned tray when the grid scrolls.
+	 * Does nothing if the view is not shifting.
+	 */
+	public void offsetTargets(View view, int dy) {
+		int slot = indexOf(view);
+		if (slot < 0) return;
+		mFromY[slot] += dy;
+		mToY[slot] += dy;
+	}
+
+	public boolean isRunning() {
+		return mCount > 0;
+	}
+
+	/**
+	 * Returns true while the view is shifting. Its final position is
+	 * committed by the animator, so layout passes should leave it alone.
+	 */
+	public boolean isAnimating(View view) {
+		return indexOf(view) >= 0;
+	}
+
+	@Override
+	public void run() {
+		mScheduled = false;
+		long now = AnimationUtils.currentAnimationTimeMillis();
+		if (SpringboardTrace.ENABLED) {
+			long frameNanos = System.nanoTime();
+			if (mLastFrameNanos != 0) SpringboardTrace.record(SpringboardTrace.FRAME, frameNanos - mLastFrameNanos);
+			mLastFrameNanos = frameNanos;
+		}
+
+		for (int i = mCount - 1; i >= 0; i--) {
+			float fraction = mDuration > 0 ? (float) (now - mStartTimes[i]) / mDuration : 1f;
+			if (fraction > 1f) fraction = 1f;
+			float interpolated = mInterpolator.getInterpolation(fraction);
+
+			View view = mViews[i];
+			int x = mFromX[i] + (int) ((mToX[i] - mFromX[i]) * interpolated);
+			int y = mFromY[i] + (int) ((mToY[i] - mFromY[i]) * interpolated);
+			if (fraction >= 1f) {
+				// Commit the exact final layout position.
+				x = mToX[i];
+				y = mToY[i];
+			}
+			view.offsetLeftAndRight(x - view.getLeft());
+			view.offsetTopAndBottom(y - view.getTop());
+
+			if (fraction >= 1f) removeAt(i);
+		}
+
+		mHost.invalidate();
+		if (SpringboardTrace.ENABLED) SpringboardTrace.count(SpringboardTrace.COUNT_INVALIDATE);
+		if (mCount > 0) {
+			schedule();
+		} else {
+			mLastFrameNanos = 0;
+		}
+	}
+
+	private void schedule() {
+		if (mScheduled) return;
+		mScheduled = true;
+		ViewCompat.postOnAnimation(mHost, this);
+	}
+
+	private int indexOf(View view) {
+		return mTable[tableIndex(view)] - 1;
+	}
+
+	// Returns the table entry holding the view, or the empty entry it
+	// would go into.
+	private int tableIndex(View view) {
+		int mask = mTable.length - 1;
+		int i = hash(view) & mask;
+		while (mTable[i] != 0 && mViews[mTable[i] - 1] != view) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	private static int hash(View view) {
+		int h = System.identityHashCode(view) * 0x9e3779b9;
+		return h ^ (h >>> 16);
+	}
+
+	// Empties a table entry, moving back the entries after it that could
+	// no longer be found across the gap.
+	private void removeTableEntry(int hole) {
+		int mask = mTable.length - 1;
+		int i = (hole + 1) & mask;
+		while (mTable[i] != 0) {
+			int home = hash(mViews[mTable[i] - 1]) & mask;
+			if (((i - home) & mask) >= ((i - hole) & mask)) {
+				mTable[hole] = mTable[i];
+				mTable[i] = 0;
+				hole = i;
+			}
+			i = (i + 1) & mask;
+		}
+		mTable[hole] = 0;
+	}
+
+	// Removes a slot by moving the last slot into it.
+	private void removeAt(int slot) {
+		removeTableEntry(tableIndex(mViews[slot]));
+		int last = --mCount;
+		if (slot != last) mTable[tableIndex(mViews[last])] = slot + 1;
+		mViews[slot] = mViews[last];
+		mFromX[slot] = mFromX[last];
+		mFromY[slot] = mFromY[last];
+		mToX[slot] = mToX[last];
+		mToY[slot] = mToY[last];
+		mStartTimes[slot] = mStartTimes[last];
+		mViews[last] = null;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= mViews.length) return;
+		int newCapacity = Math.max(capacity, mViews.length * 2);
+		View[] views = new View[newCapacity];
+		System.arraycopy(mViews, 0, views, 0, mViews.length);
+		mViews = views;
+		mFromX = grow(mFromX, newCapacity);
+		mFromY = grow(mFromY, newCapacity);
+		mToX = grow(mToX, newCapacity);
+		mToY = grow(mToY, newCapacity);
+		long[] startTimes = new long[newCapacity];
+		System.arraycopy(mStartTimes, 0, startTimes, 0, mStartTimes.length);
+		mStartTimes = startTimes;
+
+		int tableSize = mTable.length;
+		while (tableSize < newCapacity * 2) tableSize *= 2;
+		if (tableSize == mTable.length) return;
+		mTable = new int[tableSize];
+		for (int i = 0; i < mCount; i++) {
+			if (mViews[i] != null) mTable[tableIndex(mViews[i])] = i + 1;
+		}
+	}
+
+	private static int[] grow(int[] array, int newCapacity) {
+		int[] grown = new int[newCapacity];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+}
@@ -1,17 +1,22 @@
 package com.test.springboard;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import android.app.Activity;
 import android.content.Context;
 import android.os.Bundle;
 import android.util.Log;
+import android.util.SparseArray;
+import android.view.KeyEvent;
 import android.view.LayoutInflater;
 import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup.LayoutParams;
 import android.widget.ImageView;
-import android.widget.LinearLayout;
 import android.widget.RelativeLayout;
 import android.widget.TextView;
 
@@ -25,8 +30,27 @@ public class SpringboardActivity extends Activity {
 	private RelativeLayout mRlTabBar;
 	private DragView mDragView;
 	private DragViewTabBar mDragViewTabBar;*/
-	private DraggableView mDragView;
+	private DraggableView mDragView;		// Home page, holds the stored layout.
+	private SpringboardPager mPager;
 	private LayoutInflater mInflater;
+	private IconCache mIconCache;
+	private FolderPreviewCache mFolderPreviews;
+	private FolderPanel mFolderPanel;
+	private CellFactory mCellFactory;
+	private LayoutStore mLayoutStore;
+	private EditJournal mJournal;
+	private TouchTraceRecorder mTraceRecorder;		// Debug builds only.
+	private TouchTraceReplayer mTraceReplayer;
+	private final ArrayList<SpringboardItem> mItems = new ArrayList<SpringboardItem>();	// Items in display order.
+	private int mNextFolderId = ITEM_COUNT;
+	private final StringBuilder mFilterText = new StringBuilder();
+	
+	private static final int CELL_POOL_SIZE = 16;
+	private static final int ITEM_COUNT = 14;
+	private static final int JOURNAL_CAPACITY = 512;
+	private static final int PAGE_COUNT = 3;
+	private static final int PAGE_ITEM_COUNT = 16;		// Items on each page after the home page.
+	private static final int PAGE_ITEM_BASE_ID = 1000;	// Clear of the home page's item and folder ids.
 	
 //	private ArrayList<View> mGridItems;
 	
@@ -38,12 +62,50 @@ public class SpringboardActivity extends Activity {
         Log.i(LOGTAG, TAG + " - onCreate");
 
         mInflater = (LayoutInflater) getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+        // Icons get an eighth of the heap.
+        mIconCache = new IconCache(getResources(), (int) (Runtime.getRuntime().maxMemory() / 8));
+        // Folder tiles get a sixteenth on top.
+        mFolderPreviews = new FolderPreviewCache(mIconCache, (int) (Runtime.getRuntime().maxMemory() / 16));
         
         mRlRoot = (RelativeLayout) findViewById(R.id.sb_RlRoot);
 //        mDragView = new DragView(this);
         mDragView = new DraggableView(this);
+        // Start inflating cells in the background while the rest of the
+        // startup runs, onStart takes them from the pool.
+        mCellFactory = new CellFactory(this, CELL_POOL_SIZE);
+        mCellFactory.setIconSize(mDragView.getChildSize() / 2);
+        mCellFactory.prewarm();
+        mDragView.setCellFactory(mCellFactory);
+        // Restore the saved icon order off the UI thread, every drag from
+        // now on is logged. Icons are shown once it is loaded.
+        mJournal = new EditJournal(getFilesDir(), JOURNAL_CAPACITY);
+        mLayoutStore = new LayoutStore(getFilesDir());
+        mLayoutStore.load(ITEM_COUNT, mLayoutLoadedListener);
+        mDragView.setReorderListener(mReorderListener);
+        mDragView.setOnItemDropListener(mItemDropListener);
+        mDragView.setOnItemClickListener(mItemClickListener);
+        mDragView.setOnCellSizeChangeListener(mCellSizeChangeListener);
+        if (SpringboardTrace.ENABLED) {
+        	// Records only once started from the menu.
+        	mTraceRecorder = new TouchTraceRecorder();
+        	mDragView.setTouchTraceRecorder(mTraceRecorder);
+        }
 //        mDragViewTabBar = new DragViewTabBar(this);
-        mRlRoot.addView(mDragView);
+        // Pages after the home page are only inflated when they are about to show.
+        SpringboardPageFactory pageFactory = new SpringboardPageFactory(this, mDragView, mCellFactory, mItemBinder);
+        for (int page = 1; page < PAGE_COUNT; page++) {
+        	ArrayList<SpringboardItem> items = new ArrayList<SpringboardItem>(PAGE_ITEM_COUNT);
+        	for (int i = 0; i < PAGE_ITEM_COUNT; i++) {
+        		items.add(newItem(PAGE_ITEM_BASE_ID + (page - 1) * PAGE_ITEM_COUNT + i));
+        	}
+        	pageFactory.addPage(items);
+        }
+        mPager = new SpringboardPager(this);
+        mPager.setPageFactory(pageFactory);
+        mRlRoot.addView(mPager);
+        // Added once and only shown or hidden, opening a folder lays out nothing else.
+        mFolderPanel = new FolderPanel(this, mDragView.getChildSize());
+        mRlRoot.addView(mFolderPanel, new RelativeLayout.LayoutParams(LayoutParams.FILL_PARENT, LayoutParams.FILL_PARENT));
 //        mRlRoot.addView(mDragViewTabBar);
     }
 
@@ -52,25 +114,248 @@ public class SpringboardActivity extends Activity {
     	super.onStart();
     	Log.i(LOGTAG, TAG + " - onStart");
     	
-    	addItemsToGridView();
+    	if (mLayoutStore.isLoaded()) addItemsToGridView();
 //    	addItemsToTabBar();
     }
     
+    // Safe to call on every start, items already shown keep their cells
+    // and only changes to the item set are applied.
     private void addItemsToGridView() {
     	mDragView.setGridViewCount(10);
-    	for (int i = 0; i < 14; i++) {
-    		View view = mInflater.inflate(R.layout.one_item, null);
+    	if (mItems.isEmpty()) {
+    		for (int i = 0; i < mLayoutStore.getItemCount(); i++) {
+    			int id = mLayoutStore.getItemAt(i);
+    			int[] folderItems = mLayoutStore.getFolderItems(id);
+    			if (folderItems == null) {
+    				mItems.add(newItem(id));
+    				continue;
+    			}
+    			ArrayList<SpringboardItem> children = new ArrayList<SpringboardItem>(folderItems.length);
+    			for (int j = 0; j < folderItems.length; j++) {
+    				children.add(newItem(folderItems[j]));
+    			}
+    			mItems.add(new SpringboardItem(id, "Folder", children));
+    			mNextFolderId = Math.max(mNextFolderId, id + 1);
+    		}
+    	}
+    	mDragView.setItems(mItems, mItemBinder);
+    }
+    
+    private final LayoutStore.OnLoadedListener mLayoutLoadedListener = new LayoutStore.OnLoadedListener() {
+    	@Override
+    	public void onLayoutLoaded() {
+    		// Undo history survives restarts as long as the order it was saved with does.
+    		mJournal.load(orderHash());
+    		addItemsToGridView();
+    	}
+    };
+    
+    private SpringboardItem newItem(int id) {
+    	return new SpringboardItem(id, "EG "+id, R.drawable.chrome_icon);
+    }
+    
+    // Keeps mItems in the order shown and passes every reorder on to the
+    // store and the journal.
+    private final ReorderListener mReorderListener = new ReorderListener() {
+    	@Override
+    	public void onItemMoved(int fromPos, int toPos) {
+    		mItems.add(toPos, mItems.remove(fromPos));
+    		mLayoutStore.onItemMoved(fromPos, toPos);
+    		mJournal.onItemMoved(fromPos, toPos);
+    	}
+    	
+    	@Override
+    	public void onItemsSwapped(int posA, int posB) {
+    		Collections.swap(mItems, posA, posB);
+    		mLayoutStore.onItemsSwapped(posA, posB);
+    		mJournal.onItemsSwapped(posA, posB);
+    	}
+    	
+    	@Override
+    	public void onItemsMoved(int[] positions, int count, int toPos) {
+    		ArrayList<SpringboardItem> moved = new ArrayList<SpringboardItem>(count);
+    		for (int i = count - 1; i >= 0; i--) {
+    			moved.add(0, mItems.remove(positions[i]));
+    		}
+    		mItems.addAll(toPos, moved);
+    		mLayoutStore.onItemsMoved(positions, count, toPos);
+    		mJournal.onItemsMoved(positions, count, toPos);
+    	}
+    };
+    
+    // Dropping an icon onto another one makes a folder of the two,
+    // dropping it onto a folder adds it to the folder.
+    private final DraggableView.OnItemDropListener mItemDropListener = new DraggableView.OnItemDropListener() {
+    	@Override
+    	public void onItemDropped(int position, int targetPosition) {
+    		SpringboardItem dropped = mItems.get(position);
+    		SpringboardItem target = mItems.get(targetPosition);
+    		// Folders are not nested.
+    		if (dropped.isFolder()) return;
+    		
+    		ArrayList<SpringboardItem> children = new ArrayList<SpringboardItem>();
+    		SpringboardItem folder;
+    		if (target.isFolder()) {
+    			children.addAll(target.getChildren());
+    			children.add(dropped);
+    			folder = new SpringboardItem(target.getId(), target.getLabel(), children);
+    		} else {
+    			children.add(target);
+    			children.add(dropped);
+    			folder = new SpringboardItem(mNextFolderId++, "Folder", children);
+    		}
+    		mItems.set(targetPosition, folder);
+    		mItems.remove(position);
+    		mDragView.setItems(mItems, mItemBinder);
+    		
+    		// Folders are stored as a table of their items next to the order.
+    		int[] order = new int[mItems.size()];
+    		SparseArray<int[]> folders = new SparseArray<int[]>();
+    		for (int i = 0; i < order.length; i++) {
+    			SpringboardItem item = mItems.get(i);
+    			order[i] = item.getId();
+    			if (!item.isFolder()) continue;
+    			List<SpringboardItem> folderChildren = item.getChildren();
+    			int[] folderItems = new int[folderChildren.size()];
+    			for (int j = 0; j < folderItems.length; j++) {
+    				folderItems[j] = folderChildren.get(j).getId();
+    			}
+    			folders.put(item.getId(), folderItems);
+    		}
+    		mLayoutStore.replace(order, folders);
+    		// Positions recorded before the folder no longer line up.
+    		mJournal.clear();
+    	}
+    };
+    
+    private File getTraceFile() {
+    	return new File(getFilesDir(), "touch_trace.bin");
+    }
+    
+    // Replays the last recorded trace through the springboard and logs
+    // what it cost.
+    private void replayTrace() {
+    	if (mTraceReplayer == null) mTraceReplayer = new TouchTraceReplayer();
+    	if (mTraceReplayer.isReplaying()) return;
+    	if (!mTraceReplayer.load(getTraceFile())) {
+    		Log.w(LOGTAG, TAG + " - no touch trace recorded yet");
+    		return;
+    	}
+    	mTraceReplayer.replay(mDragView, new TouchTraceReplayer.OnReplayFinishedListener() {
+    		@Override
+    		public void onReplayFinished(TouchTraceReplayer.Report report) {
+    			Log.i(LOGTAG, TAG + " - replay " + report);
+    			Log.i(LOGTAG, TAG + " - " + SpringboardTrace.dump());
+    		}
+    	});
+    }
+    
+    // Hash of the stored order, ties the saved journal to it.
+    private int orderHash() {
+    	int hash = mLayoutStore.getItemCount();
+    	for (int i = 0; i < mLayoutStore.getItemCount(); i++) {
+    		hash = 31 * hash + mLayoutStore.getItemAt(i);
+    	}
+    	return hash;
+    }
+    
+    private final DraggableView.OnItemClickListener mItemClickListener = new DraggableView.OnItemClickListener() {
+    	@Override
+    	public void onItemClick(int position, View view) {
+    		SpringboardItem item = mItems.get(position);
+    		if (item.isFolder()) mFolderPanel.open(item, mItemBinder);
+    	}
+    };
+    
+    // Icons are half a cell, pooled cells get the new size from now on
+    // and the cells shown get it when they are bound again.
+    private final DraggableView.OnCellSizeChangeListener mCellSizeChangeListener = new DraggableView.OnCellSizeChangeListener() {
+    	@Override
+    	public void onCellSizeChanged(int childSize) {
+    		mCellFactory.setIconSize(childSize / 2);
+    		mFolderPanel.setChildSize(childSize);
+    	}
+    };
+    
+    private final DraggableView.ItemBinder mItemBinder = new DraggableView.ItemBinder() {
+    	@Override
+    	public View createView(SpringboardItem item) {
+    		// Cells come with the icon size already applied.
+    		View view = mCellFactory.obtain();
+    		int childSize = mDragView.getChildSize();
+    		view.setLayoutParams(new LayoutParams(childSize, childSize));
+    		return view;
+    	}
+    	
+    	@Override
+    	public void bindView(View view, SpringboardItem item) {
+    		mCellFactory.applyIconSize(view);
     		ImageView ivIcon = (ImageView) view.findViewById(R.id.ivIcon);
     		TextView tvIcon = (TextView) view.findViewById(R.id.tvIcon);
-    		tvIcon.setText("EG "+i);
-    		int childSize = mDragView.getChildSize();
-    		ivIcon.setBackgroundResource(R.drawable.chrome_icon);
-    		LinearLayout.LayoutParams ivParams = (LinearLayout.LayoutParams) ivIcon.getLayoutParams();
-    		ivParams.width = childSize / 2;
-    		ivParams.height = childSize / 2;
-    		ivIcon.setLayoutParams(ivParams);
-    		mDragView.addViewToLayout(view, i, new LayoutParams(childSize, childSize));
+    		tvIcon.setText(item.getLabel());
+    		// A recycled cell may still wait for the other kind of image.
+    		if (item.isFolder()) {
+    			mIconCache.cancel(ivIcon);
+    			mFolderPreviews.loadPreview(ivIcon, item, mDragView.getChildSize() / 2);
+    		} else {
+    			mFolderPreviews.cancel(ivIcon);
+    			mIconCache.loadIcon(ivIcon, item.getIconResId(), mDragView.getChildSize() / 2);
+    		}
+    	}
+    };
+    
+    // Typing filters the springboard by label, delete takes a character back.
+    @Override
+    public boolean onKeyDown(int keyCode, KeyEvent event) {
+    	if (keyCode == KeyEvent.KEYCODE_DEL && mFilterText.length() > 0) {
+    		mFilterText.setLength(mFilterText.length() - 1);
+    		mDragView.setFilter(mFilterText);
+    		return true;
     	}
+    	int c = event.getUnicodeChar();
+    	if (c != 0 && !Character.isISOControl(c) && !mFolderPanel.isOpen()) {
+    		// Only the home page filters.
+    		mPager.setCurrentPage(0, true);
+    		mFilterText.append((char) c);
+    		mDragView.setFilter(mFilterText);
+    		return true;
+    	}
+    	return super.onKeyDown(keyCode, event);
+    }
+    
+    @Override
+    public void onBackPressed() {
+    	if (mFolderPanel.isOpen()) {
+    		mFolderPanel.close();
+    		return;
+    	}
+    	if (mFilterText.length() > 0) {
+    		mFilterText.setLength(0);
+    		mDragView.setFilter(null);
+    		return;
+    	}
+    	super.onBackPressed();
+    }
+    
+    @Override
+    protected void onStop() {
+    	super.onStop();
+    	// Before the layout is loaded there is nothing to save, and saving
+    	// would replace the history the load is about to read.
+    	if (mLayoutStore.isLoaded()) mJournal.save(orderHash());
+    }
+    
+    @Override
+    protected void onDestroy() {
+    	super.onDestroy();
+    	mJournal.close();
+    	if (mTraceRecorder != null) mTraceRecorder.close();
+    	if (mTraceReplayer != null) mTraceReplayer.cancel();
+    	mFolderPreviews.shutdown();
+    	mIconCache.shutdown();
+    	mCellFactory.shutdown();
+    	mLayoutStore.close();
+    	Log.i(LOGTAG, TAG + " - cell pool hits: "+mCellFactory.getHitCount()+" misses: "+mCellFactory.getMissCount());
     }
     
     @Override
@@ -78,4 +363,48 @@ public class SpringboardActivity extends Activity {
         getMenuInflater().inflate(R.menu.springboard, menu);
         return true;
     }
+    
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+    	menu.findItem(R.id.menu_undo).setEnabled(mJournal.canUndo());
+    	menu.findItem(R.id.menu_redo).setEnabled(mJournal.canRedo());
+    	menu.findItem(R.id.menu_record_trace).setVisible(SpringboardTrace.ENABLED);
+    	menu.findItem(R.id.menu_replay_trace).setVisible(SpringboardTrace.ENABLED);
+    	return super.onPrepareOptionsMenu(menu);
+    }
+    
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+    	if (item.getItemId() == R.id.menu_select) {
+    		mDragView.setSelectionMode(!mDragView.isSelectionMode());
+    		item.setChecked(mDragView.isSelectionMode());
+    		return true;
+    	}
+    	if (item.getItemId() == R.id.menu_undo) {
+    		mPager.setCurrentPage(0, true);
+    		mJournal.undo(mDragView);
+    		return true;
+    	}
+    	if (item.getItemId() == R.id.menu_redo) {
+    		mPager.setCurrentPage(0, true);
+    		mJournal.redo(mDragView);
+    		return true;
+    	}
+    	if (item.getItemId() == R.id.menu_record_trace && mTraceRecorder != null) {
+    		if (mTraceRecorder.isRecording()) {
+    			mTraceRecorder.stop();
+    			mTraceRecorder.save(getTraceFile());
+    			Log.i(LOGTAG, TAG + " - recorded "+mTraceRecorder.getRecordCount()+" touch records");
+    		} else {
+    			mTraceRecorder.start();
+    		}
+    		item.setChecked(mTraceRecorder.isRecording());
+    		return true;
+    	}
+    	if (item.getItemId() == R.id.menu_replay_trace && SpringboardTrace.ENABLED) {
+    		replayTrace();
+    		return true;
+    	}
+    	return super.onOptionsItemSelected(item);
+    }
 }
@@ -0,0 +1,86 @@
+package com.test.springboard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable description of one icon on the springboard. Items are
+ * matched by id, so an item keeps its cell as long as its id stays
+ * in the list, whatever position it ends up at.
+ *
+ * A folder is an item with children instead of an icon resource.
+ */
+public class SpringboardItem {
+
+	private final int mId;
+	private final String mLabel;
+	private final int mIconResId;
+	private final List<SpringboardItem> mChildren;	// Null unless this is a folder.
+
+	/**
+	 * @param id - stable id, unique among the items shown together
+	 * @param label - text shown under the icon
+	 * @param iconResId - drawable resource of the icon
+	 */
+	public SpringboardItem(int id, String label, int iconResId) {
+		mId = id;
+		mLabel = label;
+		mIconResId = iconResId;
+		mChildren = null;
+	}
+
+	/**
+	 * Creates a folder holding the given items.
+	 * @param id - stable id, unique among the items shown together
+	 * @param label - text shown under the folder
+	 * @param children - items in the folder, copied
+	 */
+	public SpringboardItem(int id, String label, List<SpringboardItem> children) {
+		mId = id;
+		mLabel = label;
+		mIconResId = 0;
+		mChildren = Collections.unmodifiableList(new ArrayList<SpringboardItem>(children));
+	}
+
+	public int getId() {
+		return mId;
+	}
+
+	public String getLabel() {
+		return mLabel;
+	}
+
+	public int getIconResId() {
+		return mIconResId;
+	}
+
+	public boolean isFolder() {
+		return mChildren != null;
+	}
+
+	/**
+	 * Returns the items in the folder, or an empty list for a plain item.
+	 */
+	public List<SpringboardItem> getChildren() {
+		if (mChildren == null) return Collections.emptyList();
+		return mChildren;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof SpringboardItem)) return false;
+		SpringboardItem other = (SpringboardItem) o;
+		return mId == other.mId && mIconResId == other.mIconResId
+				&& (mLabel == null ? other.mLabel == null : mLabel.equals(other.mLabel))
+				&& (mChildren == null ? other.mChildren == null : mChildren.equals(other.mChildren));
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = 31 * mId + mIconResId;
+		hash = 31 * hash + (mLabel != null ? mLabel.hashCode() : 0);
+		return 31 * hash + (mChildren != null ? mChildren.hashCode() : 0);
+	}
+}
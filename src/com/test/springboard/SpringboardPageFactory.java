@@ -0,0 +1,112 @@
+package com.test.springboard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+
+/**
+ * Pages of the springboard for SpringboardPager.
+ *
+ * Page 0 is the home page, the DraggableView the activity keeps the
+ * stored layout, folders and undo history on. It is never released,
+ * only taken out of the pager while it is far away. Every further page
+ * is a DraggableView inflated from R.layout.springboard_page when the
+ * pager asks for it, showing its items in the order they were last
+ * dragged into.
+ *
+ * Released pages hand their cells back to the CellFactory, so the next
+ * page created takes them from the pool instead of inflating them.
+ */
+public class SpringboardPageFactory implements SpringboardPager.PageFactory {
+
+	private final LayoutInflater mInflater;
+	private final DraggableView mHomePage;
+	private final CellFactory mCellFactory;
+	private final DraggableView.ItemBinder mBinder;
+	private final ArrayList<List<SpringboardItem>> mPageItems = new ArrayList<List<SpringboardItem>>();	// Pages after the home page.
+
+	/**
+	 * @param homePage - shown as page 0
+	 * @param cellFactory - pool the cells of further pages come from and go back to
+	 * @param binder - creates and binds the cells of further pages
+	 */
+	public SpringboardPageFactory(Context context, DraggableView homePage, CellFactory cellFactory,
+			DraggableView.ItemBinder binder) {
+		mInflater = LayoutInflater.from(context);
+		mHomePage = homePage;
+		mCellFactory = cellFactory;
+		mBinder = binder;
+	}
+
+	/**
+	 * Adds a page after the others. Only takes effect for the pager on
+	 * its next setPageFactory().
+	 * @param items - items of the page, kept in the order they are dragged into
+	 */
+	public void addPage(List<SpringboardItem> items) {
+		mPageItems.add(new ArrayList<SpringboardItem>(items));
+	}
+
+	@Override
+	public int getPageCount() {
+		return 1 + mPageItems.size();
+	}
+
+	@Override
+	public View createPage(int page) {
+		if (page == 0) return mHomePage;
+		List<SpringboardItem> items = mPageItems.get(page - 1);
+		DraggableView view = (DraggableView) mInflater.inflate(R.layout.springboard_page, null);
+		view.setCellFactory(mCellFactory);
+		view.setReorderListener(new ItemOrder(items));
+		view.setItems(items, mBinder);
+		return view;
+	}
+
+	@Override
+	public void destroyPage(int page, View view) {
+		if (page == 0) return;
+		DraggableView draggableView = (DraggableView) view;
+		View[] cells = new View[draggableView.getChildCount()];
+		for (int i = 0; i < cells.length; i++) {
+			cells[i] = draggableView.getChildAt(i);
+		}
+		draggableView.setItems(Collections.<SpringboardItem>emptyList(), mBinder);
+		for (int i = 0; i < cells.length; i++) {
+			mCellFactory.release(cells[i]);
+		}
+	}
+
+	// Keeps the items of a page in the order its drags leave them in, so
+	// the page comes back the same after it was released.
+	private static class ItemOrder implements ReorderListener {
+		private final List<SpringboardItem> mItems;
+
+		ItemOrder(List<SpringboardItem> items) {
+			mItems = items;
+		}
+
+		@Override
+		public void onItemMoved(int fromPos, int toPos) {
+			mItems.add(toPos, mItems.remove(fromPos));
+		}
+
+		@Override
+		public void onItemsSwapped(int posA, int posB) {
+			Collections.swap(mItems, posA, posB);
+		}
+
+		@Override
+		public void onItemsMoved(int[] positions, int count, int toPos) {
+			ArrayList<SpringboardItem> moved = new ArrayList<SpringboardItem>(count);
+			for (int i = count - 1; i >= 0; i--) {
+				moved.add(0, mItems.remove(positions[i]));
+			}
+			mItems.addAll(toPos, moved);
+		}
+	}
+}
@@ -0,0 +1,285 @@
+package com.test.springboard;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.SparseArray;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
+import android.widget.Scroller;
+
+/**
+ * Horizontally paged springboard. Pages are created through a
+ * PageFactory only when they are about to become visible, the pages
+ * next to the current one are created ahead of time while the UI
+ * thread is idle, and pages further than OFFSCREEN_PAGE_LIMIT away
+ * from the current one are released again.
+ *
+ * Children such as DraggableView should call
+ * requestDisallowInterceptTouchEvent(true) once they start a drag so
+ * the pager does not take over the gesture.
+ */
+public class SpringboardPager extends ViewGroup {
+
+	/**
+	 * Creates and releases the views of single pages.
+	 */
+	public interface PageFactory {
+		int getPageCount();
+		View createPage(int page);
+		void destroyPage(int page, View view);
+	}
+
+	private static final int OFFSCREEN_PAGE_LIMIT = 1;	// Pages kept on each side of the current one.
+	private static final int SNAP_VELOCITY = 600;		// Pixels per second needed to flip on fling.
+	private static final int SNAP_DURATION = 250;
+
+	private PageFactory mFactory;
+	private SparseArray<View> mPages;
+	private int mCurrentPage = 0;
+
+	private Scroller mScroller;
+	private VelocityTracker mVelocityTracker;
+	private int mTouchSlop;
+	private int mLastMotionX;
+	private int mDownX, mDownY;
+	private boolean mIsBeingDragged = false;
+
+	// Creates one missing neighbour page per idle pass of the UI thread,
+	// so prefetching never delays input or drawing.
+	private final MessageQueue.IdleHandler mPrefetcher = new MessageQueue.IdleHandler() {
+		@Override
+		public boolean queueIdle() {
+			if (mFactory == null || getWidth() == 0) {
+				mPrefetchScheduled = false;
+				return false;
+			}
+			int first = Math.max(0, mCurrentPage - OFFSCREEN_PAGE_LIMIT);
+			int last = Math.min(mFactory.getPageCount() - 1, mCurrentPage + OFFSCREEN_PAGE_LIMIT);
+			for (int page = first; page <= last; page++) {
+				if (mPages.get(page) == null) {
+					addPage(page);
+					return true;
+				}
+			}
+			mPrefetchScheduled = false;
+			return false;
+		}
+	};
+	private boolean mPrefetchScheduled = false;
+
+	public SpringboardPager(Context context) {
+		super(context);
+		init();
+	}
+
+	private void init() {
+		mPages = new SparseArray<View>();
+		mScroller = new Scroller(getContext());
+		mTouchSlop = ViewConfiguration.get(getContext()).getScaledTouchSlop();
+	}
+
+	/**
+	 * Sets the factory providing the pages and shows the first page.
+	 * Pages created by a previous factory are released.
+	 */
+	public void setPageFactory(PageFactory factory) {
+		for (int i = mPages.size() - 1; i >= 0; i--) {
+			removePage(mPages.keyAt(i));
+		}
+		mFactory = factory;
+		mCurrentPage = 0;
+		mScroller.forceFinished(true);
+		scrollTo(0, 0);
+		requestLayout();
+	}
+
+	public int getCurrentPage() {
+		return mCurrentPage;
+	}
+
+	/**
+	 * Scrolls to the given page, or jumps there if animate is false.
+	 */
+	public void setCurrentPage(int page, boolean animate) {
+		if (mFactory == null) return;
+		page = Math.max(0, Math.min(page, mFactory.getPageCount() - 1));
+		int targetX = page * getWidth();
+		mScroller.forceFinished(true);
+		if (animate) {
+			mScroller.startScroll(getScrollX(), 0, targetX - getScrollX(), 0, SNAP_DURATION);
+			invalidate();
+		} else {
+			scrollTo(targetX, 0);
+		}
+		onPageSelected(page);
+	}
+
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		int width = MeasureSpec.getSize(widthMeasureSpec);
+		int height = MeasureSpec.getSize(heightMeasureSpec);
+		setMeasuredDimension(width, height);
+
+		for (int i = 0; i < mPages.size(); i++) {
+			measurePage(mPages.valueAt(i));
+		}
+	}
+
+	@Override
+	protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+		if (mFactory == null) return;
+		if (changed) scrollTo(mCurrentPage * getWidth(), 0);
+		ensureVisiblePages();
+		for (int i = 0; i < mPages.size(); i++) {
+			layoutPage(mPages.keyAt(i), mPages.valueAt(i));
+		}
+	}
+
+	@Override
+	public boolean onInterceptTouchEvent(MotionEvent event) {
+		switch (event.getAction()) {
+			case MotionEvent.ACTION_DOWN: {
+				mDownX = mLastMotionX = (int) event.getX();
+				mDownY = (int) event.getY();
+				mIsBeingDragged = !mScroller.isFinished();
+				break;
+			}
+			case MotionEvent.ACTION_MOVE: {
+				int dx = Math.abs((int) event.getX() - mDownX);
+				int dy = Math.abs((int) event.getY() - mDownY);
+				if (dx > mTouchSlop && dx > dy) {
+					mIsBeingDragged = true;
+					mLastMotionX = (int) event.getX();
+				}
+				break;
+			}
+			case MotionEvent.ACTION_UP:
+			case MotionEvent.ACTION_CANCEL: {
+				mIsBeingDragged = false;
+				break;
+			}
+		}
+		return mIsBeingDragged;
+	}
+
+	@Override
+	public boolean onTouchEvent(MotionEvent event) {
+		if (mFactory == null) return false;
+		if (mVelocityTracker == null) mVelocityTracker = VelocityTracker.obtain();
+		mVelocityTracker.addMovement(event);
+
+		switch (event.getAction()) {
+			case MotionEvent.ACTION_DOWN: {
+				mScroller.forceFinished(true);
+				mLastMotionX = (int) event.getX();
+				break;
+			}
+			case MotionEvent.ACTION_MOVE: {
+				int x = (int) event.getX();
+				int maxScrollX = (mFactory.getPageCount() - 1) * getWidth();
+				int scrollX = Math.max(0, Math.min(getScrollX() + mLastMotionX - x, maxScrollX));
+				scrollTo(scrollX, 0);
+				mLastMotionX = x;
+				break;
+			}
+			case MotionEvent.ACTION_UP:
+			case MotionEvent.ACTION_CANCEL: {
+				mVelocityTracker.computeCurrentVelocity(1000);
+				int velocityX = (int) mVelocityTracker.getXVelocity();
+				int page = (getScrollX() + getWidth() / 2) / Math.max(1, getWidth());
+				if (velocityX > SNAP_VELOCITY && page >= mCurrentPage) {
+					page = mCurrentPage - 1;
+				} else if (velocityX < -SNAP_VELOCITY && page <= mCurrentPage) {
+					page = mCurrentPage + 1;
+				}
+				setCurrentPage(page, true);
+				mVelocityTracker.recycle();
+				mVelocityTracker = null;
+				mIsBeingDragged = false;
+				break;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void computeScroll() {
+		if (mScroller.computeScrollOffset()) {
+			scrollTo(mScroller.getCurrX(), 0);
+			invalidate();
+		}
+	}
+
+	@Override
+	protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+		super.onScrollChanged(l, t, oldl, oldt);
+		// A page that scrolls into view before the prefetcher got to it
+		// has to be created right away.
+		ensureVisiblePages();
+	}
+
+	private void onPageSelected(int page) {
+		mCurrentPage = page;
+		releaseFarPages();
+		schedulePrefetch();
+	}
+
+	private void ensureVisiblePages() {
+		int width = getWidth();
+		if (mFactory == null || width == 0) return;
+		int first = Math.max(0, getScrollX() / width);
+		int last = Math.min(mFactory.getPageCount() - 1, (getScrollX() + width - 1) / width);
+		for (int page = first; page <= last; page++) {
+			if (mPages.get(page) == null) addPage(page);
+		}
+		schedulePrefetch();
+	}
+
+	private void schedulePrefetch() {
+		if (mPrefetchScheduled) return;
+		mPrefetchScheduled = true;
+		Looper.myQueue().addIdleHandler(mPrefetcher);
+	}
+
+	private void releaseFarPages() {
+		for (int i = mPages.size() - 1; i >= 0; i--) {
+			int page = mPages.keyAt(i);
+			if (Math.abs(page - mCurrentPage) > OFFSCREEN_PAGE_LIMIT) {
+				removePage(page);
+			}
+		}
+	}
+
+	private void addPage(int page) {
+		View view = mFactory.createPage(page);
+		LayoutParams params = view.getLayoutParams();
+		if (params == null) params = new LayoutParams(LayoutParams.FILL_PARENT, LayoutParams.FILL_PARENT);
+		addViewInLayout(view, -1, params, true);
+		mPages.put(page, view);
+		measurePage(view);
+		layoutPage(page, view);
+		invalidate();
+	}
+
+	private void removePage(int page) {
+		View view = mPages.get(page);
+		if (view == null) return;
+		mPages.remove(page);
+		removeViewInLayout(view);
+		mFactory.destroyPage(page, view);
+	}
+
+	private void measurePage(View page) {
+		page.measure(MeasureSpec.makeMeasureSpec(getMeasuredWidth(), MeasureSpec.EXACTLY),
+				MeasureSpec.makeMeasureSpec(getMeasuredHeight(), MeasureSpec.EXACTLY));
+	}
+
+	private void layoutPage(int page, View view) {
+		int left = page * getWidth();
+		view.layout(left, 0, left + getWidth(), getHeight());
+	}
+}
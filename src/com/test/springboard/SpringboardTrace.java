@@ -0,0 +1,93 @@
+package com.test.springboard;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Trace spans, latency histograms and event counters for the drag and
+ * layout paths of the springboard containers.
+ *
+ * Tracing is gated on the compile time constant ENABLED, which follows
+ * BuildConfig.DEBUG. Call sites are written as
+ *
+ *     long start = SpringboardTrace.ENABLED ? SpringboardTrace.begin() : 0;
+ *     ...
+ *     if (SpringboardTrace.ENABLED) SpringboardTrace.end(SpringboardTrace.LAYOUT, start);
+ *
+ * so in release builds the compiler drops them entirely and tracing
+ * costs nothing. When enabled, recording never allocates.
+ */
+public final class SpringboardTrace {
+
+	public static final boolean ENABLED = BuildConfig.DEBUG;
+
+	// Spans, each backed by a latency histogram.
+	public static final int TOUCH = 0;				// One onTouchEvent call while dragging.
+	public static final int REORDER = 1;			// Model update and shift animations for one reorder.
+	public static final int LAYOUT = 2;				// One onLayout pass.
+	public static final int ANIMATION_START = 3;	// Starting or retargeting one icon shift.
+	public static final int FRAME = 4;				// Time between two animation frames.
+	private static final int SPAN_COUNT = 5;
+
+	// Plain event counters.
+	public static final int COUNT_INVALIDATE = 0;	// Container invalidations from the drag path.
+	public static final int COUNT_LAYOUT_CHILD = 1;	// Children laid out by onLayout passes.
+	private static final int COUNTER_COUNT = 2;
+
+	private static final LatencyHistogram[] sHistograms = new LatencyHistogram[] {
+		new LatencyHistogram("touch"),
+		new LatencyHistogram("reorder"),
+		new LatencyHistogram("layout"),
+		new LatencyHistogram("animationStart"),
+		new LatencyHistogram("frame"),
+	};
+	private static final AtomicLongArray sCounters = new AtomicLongArray(COUNTER_COUNT);
+
+	private SpringboardTrace() {
+	}
+
+	public static long begin() {
+		return System.nanoTime();
+	}
+
+	public static void end(int span, long startNanos) {
+		sHistograms[span].record(System.nanoTime() - startNanos);
+	}
+
+	public static void record(int span, long nanos) {
+		sHistograms[span].record(nanos);
+	}
+
+	public static void count(int counter) {
+		sCounters.incrementAndGet(counter);
+	}
+
+	public static LatencyHistogram getHistogram(int span) {
+		return sHistograms[span];
+	}
+
+	public static long getCount(int counter) {
+		return sCounters.get(counter);
+	}
+
+	public static void reset() {
+		for (int i = 0; i < SPAN_COUNT; i++) {
+			sHistograms[i].reset();
+		}
+		for (int i = 0; i < COUNTER_COUNT; i++) {
+			sCounters.set(i, 0);
+		}
+	}
+
+	/**
+	 * Returns a readable summary of all histograms and counters.
+	 */
+	public static String dump() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < SPAN_COUNT; i++) {
+			sb.append(sHistograms[i]).append('\n');
+		}
+		sb.append("invalidates: ").append(getCount(COUNT_INVALIDATE))
+				.append(" children laid out: ").append(getCount(COUNT_LAYOUT_CHILD));
+		return sb.toString();
+	}
+}
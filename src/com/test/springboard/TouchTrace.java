@@ -0,0 +1,126 @@
+package com.test.springboard;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+/**
+ * A touch trace as saved by TouchTraceRecorder, read back into memory.
+ * Does not depend on Android, so traces can be replayed off the device.
+ *
+ * Records are packed into one int array and addressed by the index of
+ * their first int. An event is action, time, x, y, history size, then
+ * time, x, y per historical sample, oldest first. A long click marker is
+ * LONG_CLICK, time. Times are milliseconds since the first down, positions
+ * are float bits.
+ */
+public class TouchTrace {
+
+	static final int MAGIC = 0x53425454;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 16;		// magic, version, record count, data length
+	static final int LONG_CLICK = -1;		// Stored in place of the action of a long click marker.
+
+	private final int[] mData;
+	private final int mRecordCount;
+
+	private TouchTrace(int[] data, int recordCount) {
+		mData = data;
+		mRecordCount = recordCount;
+	}
+
+	/**
+	 * Reads a trace saved by TouchTraceRecorder.
+	 * @return the trace, or null if the file is missing or not a trace
+	 */
+	public static TouchTrace load(File file) {
+		byte[] bytes;
+		try {
+			RandomAccessFile in = new RandomAccessFile(file, "r");
+			try {
+				bytes = new byte[(int) in.length()];
+				in.readFully(bytes);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return null;
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		if (bytes.length < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+			return null;
+		}
+		int recordCount = buffer.getInt();
+		int length = buffer.getInt();
+		if (length < 0 || bytes.length != HEADER_SIZE + length * 4L) return null;
+		int[] data = new int[length];
+		buffer.asIntBuffer().get(data);
+		return new TouchTrace(data, recordCount);
+	}
+
+	/**
+	 * Packs records into the file format read by load().
+	 * @param data - records, starting at index 0
+	 * @param length - number of ints used in data
+	 * @param recordCount - number of records in data
+	 */
+	public static byte[] encode(int[] data, int length, int recordCount) {
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + length * 4);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(recordCount).putInt(length);
+		buffer.asIntBuffer().put(data, 0, length);
+		return buffer.array();
+	}
+
+	public int getRecordCount() {
+		return mRecordCount;
+	}
+
+	/**
+	 * Returns the index of the record after the one at index, or
+	 * getEnd() after the last one. The first record is at 0.
+	 */
+	public int next(int index) {
+		if (mData[index] == LONG_CLICK) return index + 2;
+		return index + 5 + mData[index + 4] * 3;
+	}
+
+	public int getEnd() {
+		return mData.length;
+	}
+
+	/**
+	 * Returns the MotionEvent action of the record, or LONG_CLICK.
+	 */
+	public int getAction(int index) {
+		return mData[index];
+	}
+
+	public int getTime(int index) {
+		return mData[index + 1];
+	}
+
+	public float getX(int index) {
+		return Float.intBitsToFloat(mData[index + 2]);
+	}
+
+	public float getY(int index) {
+		return Float.intBitsToFloat(mData[index + 3]);
+	}
+
+	public int getHistorySize(int index) {
+		return mData[index + 4];
+	}
+
+	public int getHistoricalTime(int index, int pos) {
+		return mData[index + 5 + pos * 3];
+	}
+
+	public float getHistoricalX(int index, int pos) {
+		return Float.intBitsToFloat(mData[index + 6 + pos * 3]);
+	}
+
+	public float getHistoricalY(int index, int pos) {
+		return Float.intBitsToFloat(mData[index + 7 + pos * 3]);
+	}
+}
@@ -0,0 +1,143 @@
+package com.test.springboard;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+
+import android.util.Log;
+import android.view.MotionEvent;
+
+/**
+ * Records the touch events a container receives so a drag can be
+ * replayed by TouchTraceReplayer exactly as it happened.
+ *
+ * Every event is kept with its action, its time since the first down,
+ * its position and all historical samples batched into it. The long
+ * click is not an event but a callback fired by the view's own timer,
+ * it is kept as a marker at the time it fired, so the replay starts the
+ * drag at the same point instead of whenever its timer runs out.
+ * Only the first pointer is recorded, the containers only track one.
+ *
+ * Records are packed into a growing int array, recording allocates
+ * nothing once the array is large enough. Positions are stored as
+ * float bits, times as milliseconds.
+ *
+ * All methods must be called on the UI thread.
+ */
+public class TouchTraceRecorder {
+
+	private final String TAG = "TouchTraceRecorder";
+
+	private final ExecutorService mWriter;
+
+	// Records in the TouchTrace layout.
+	private int[] mData = new int[1024];
+	private int mLength = 0;
+	private int mRecordCount = 0;
+	private boolean mArmed = false;
+	private long mStartTime = -1;		// Time of the first down, or -1 until it arrives.
+
+	public TouchTraceRecorder() {
+		mWriter = BackgroundExecutor.newSingleThread(TAG);
+	}
+
+	/**
+	 * Drops what was recorded so far and records from the next down on.
+	 */
+	public void start() {
+		mLength = 0;
+		mRecordCount = 0;
+		mStartTime = -1;
+		mArmed = true;
+	}
+
+	public void stop() {
+		mArmed = false;
+	}
+
+	public boolean isRecording() {
+		return mArmed;
+	}
+
+	public int getRecordCount() {
+		return mRecordCount;
+	}
+
+	/**
+	 * Records the event if recording. Called with every event the
+	 * container's onTouchEvent() receives.
+	 */
+	public void record(MotionEvent event) {
+		if (!mArmed) return;
+		if (mStartTime < 0) {
+			if (event.getAction() != MotionEvent.ACTION_DOWN) return;
+			mStartTime = event.getEventTime();
+		}
+		int historySize = event.getHistorySize();
+		ensureCapacity(mLength + 5 + historySize * 3);
+		int[] data = mData;
+		int i = mLength;
+		data[i++] = event.getAction();
+		data[i++] = (int) (event.getEventTime() - mStartTime);
+		data[i++] = Float.floatToIntBits(event.getX());
+		data[i++] = Float.floatToIntBits(event.getY());
+		data[i++] = historySize;
+		for (int h = 0; h < historySize; h++) {
+			data[i++] = (int) (event.getHistoricalEventTime(h) - mStartTime);
+			data[i++] = Float.floatToIntBits(event.getHistoricalX(h));
+			data[i++] = Float.floatToIntBits(event.getHistoricalY(h));
+		}
+		mLength = i;
+		mRecordCount++;
+	}
+
+	/**
+	 * Records that the long click fired, called from the container's
+	 * onLongClick().
+	 * @param eventTime - uptime the long click fired at, in milliseconds
+	 */
+	public void markLongClick(long eventTime) {
+		if (!mArmed || mStartTime < 0) return;
+		ensureCapacity(mLength + 2);
+		mData[mLength++] = TouchTrace.LONG_CLICK;
+		mData[mLength++] = (int) (eventTime - mStartTime);
+		mRecordCount++;
+	}
+
+	/**
+	 * Writes what was recorded on a background thread.
+	 */
+	public void save(final File file) {
+		final byte[] bytes = TouchTrace.encode(mData, mLength, mRecordCount);
+		mWriter.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					FileOutputStream out = new FileOutputStream(file);
+					try {
+						out.write(bytes);
+					} finally {
+						out.close();
+					}
+				} catch (IOException e) {
+					Log.w(SpringboardActivity.LOGTAG, TAG + " - cannot save trace", e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Stops the writer once everything queued so far is on disk.
+	 */
+	public void close() {
+		mWriter.shutdown();
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= mData.length) return;
+		int[] data = new int[Math.max(capacity, mData.length * 2)];
+		System.arraycopy(mData, 0, data, 0, mLength);
+		mData = data;
+	}
+}
@@ -0,0 +1,212 @@
+package com.test.springboard;
+
+import java.io.File;
+import java.util.Arrays;
+
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+/**
+ * Feeds a trace saved by TouchTraceRecorder back through a container,
+ * with every event at the same time after the first down as recorded.
+ * Animation frames run in between just like they did live.
+ *
+ * The view's own long press timer is cancelled after every event and
+ * the long click is fired at its recorded time instead, so the drag
+ * starts at the same point of the trace on every replay.
+ *
+ * While replaying, the time and the allocations of every dispatch are
+ * measured. Animation starts and layout passes come from
+ * SpringboardTrace, so they are only counted in debug builds.
+ *
+ * All methods must be called on the UI thread.
+ */
+public class TouchTraceReplayer implements Runnable {
+
+	/**
+	 * Told once the last record has been replayed.
+	 */
+	public interface OnReplayFinishedListener {
+		void onReplayFinished(Report report);
+	}
+
+	/**
+	 * What the container did while the trace was replayed.
+	 */
+	public static class Report {
+		public int eventCount;				// Records replayed, the long click included.
+		public long[] handlingNanos;		// Time spent dispatching each record.
+		public int[] allocations;			// Objects allocated while dispatching each record.
+		public long allocatedBytes;			// Bytes allocated during the whole replay, frames included.
+		public long animationStarts = -1;	// -1 unless SpringboardTrace is enabled.
+		public long layoutPasses = -1;
+		public long childrenLaidOut = -1;
+
+		public long getPercentileNanos(double percentile) {
+			if (eventCount == 0) return 0;
+			long[] sorted = new long[eventCount];
+			System.arraycopy(handlingNanos, 0, sorted, 0, eventCount);
+			Arrays.sort(sorted);
+			return sorted[Math.min(eventCount - 1, (int) (percentile / 100 * eventCount))];
+		}
+
+		public long getMaxNanos() {
+			return getPercentileNanos(100);
+		}
+
+		public long getTotalAllocations() {
+			long total = 0;
+			for (int i = 0; i < eventCount; i++) {
+				total += allocations[i];
+			}
+			return total;
+		}
+
+		@Override
+		public String toString() {
+			return "events: " + eventCount
+					+ " p50: " + getPercentileNanos(50) / 1000 + "us"
+					+ " p90: " + getPercentileNanos(90) / 1000 + "us"
+					+ " max: " + getMaxNanos() / 1000 + "us"
+					+ " allocations in dispatch: " + getTotalAllocations()
+					+ " bytes allocated: " + allocatedBytes
+					+ " animation starts: " + animationStarts
+					+ " layout passes: " + layoutPasses
+					+ " children laid out: " + childrenLaidOut;
+		}
+	}
+
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+	private TouchTrace mTrace;
+
+	private View mView;
+	private OnReplayFinishedListener mListener;
+	private Report mReport;
+	private int mNext;				// Index in mTrace of the next record.
+	private long mBaseTime;			// Uptime the trace's first down is replayed at.
+	private long mDownTime;
+	private int mAllocSizeStart;
+
+	/**
+	 * Reads a trace saved by TouchTraceRecorder.
+	 * @return false if the file is missing or not a trace
+	 */
+	public boolean load(File file) {
+		TouchTrace trace = TouchTrace.load(file);
+		if (trace == null) return false;
+		mTrace = trace;
+		return true;
+	}
+
+	public boolean isReplaying() {
+		return mView != null;
+	}
+
+	/**
+	 * Starts replaying the loaded trace through the view.
+	 * @param view - container to replay the trace through
+	 * @param listener - told with the report once the trace is done
+	 */
+	public void replay(View view, OnReplayFinishedListener listener) {
+		if (isReplaying() || mTrace == null) return;
+		mView = view;
+		mListener = listener;
+		mReport = new Report();
+		mReport.handlingNanos = new long[mTrace.getRecordCount()];
+		mReport.allocations = new int[mTrace.getRecordCount()];
+		mNext = 0;
+		mBaseTime = SystemClock.uptimeMillis();
+		mDownTime = mBaseTime;
+
+		if (SpringboardTrace.ENABLED) SpringboardTrace.reset();
+		Debug.startAllocCounting();
+		mAllocSizeStart = Debug.getThreadAllocSize();
+		if (mTrace.getEnd() > 0) {
+			schedule();
+		} else {
+			finish();
+		}
+	}
+
+	/**
+	 * Stops a running replay without reporting.
+	 */
+	public void cancel() {
+		mHandler.removeCallbacks(this);
+		if (isReplaying()) Debug.stopAllocCounting();
+		mView = null;
+		mListener = null;
+	}
+
+	// Replays the next record, then waits for the one after it.
+	@Override
+	public void run() {
+		if (mView == null) return;
+		TouchTrace trace = mTrace;
+		int action = trace.getAction(mNext);
+		long eventTime = mBaseTime + trace.getTime(mNext);
+
+		int allocCount = Debug.getThreadAllocCount();
+		long start = System.nanoTime();
+		if (action == TouchTrace.LONG_CLICK) {
+			mView.performLongClick();
+		} else {
+			if (action == MotionEvent.ACTION_DOWN) mDownTime = eventTime;
+			MotionEvent event = obtainEvent(trace, mNext, action, eventTime);
+			mView.dispatchTouchEvent(event);
+			mView.cancelLongPress();
+			event.recycle();
+		}
+		mNext = trace.next(mNext);
+		mReport.handlingNanos[mReport.eventCount] = System.nanoTime() - start;
+		mReport.allocations[mReport.eventCount] = Debug.getThreadAllocCount() - allocCount;
+		mReport.eventCount++;
+
+		if (mNext < trace.getEnd()) {
+			schedule();
+		} else {
+			finish();
+		}
+	}
+
+	// Rebuilds the event with its historical samples, oldest first.
+	private MotionEvent obtainEvent(TouchTrace trace, int index, int action, long eventTime) {
+		int historySize = trace.getHistorySize(index);
+		MotionEvent event;
+		if (historySize == 0) {
+			event = MotionEvent.obtain(mDownTime, eventTime, action, trace.getX(index), trace.getY(index), 0);
+		} else {
+			event = MotionEvent.obtain(mDownTime, mBaseTime + trace.getHistoricalTime(index, 0), action,
+					trace.getHistoricalX(index, 0), trace.getHistoricalY(index, 0), 0);
+			for (int h = 1; h < historySize; h++) {
+				event.addBatch(mBaseTime + trace.getHistoricalTime(index, h),
+						trace.getHistoricalX(index, h), trace.getHistoricalY(index, h), 1f, 1f, 0);
+			}
+			event.addBatch(eventTime, trace.getX(index), trace.getY(index), 1f, 1f, 0);
+		}
+		return event;
+	}
+
+	private void schedule() {
+		mHandler.postAtTime(this, mBaseTime + mTrace.getTime(mNext));
+	}
+
+	private void finish() {
+		mReport.allocatedBytes = Debug.getThreadAllocSize() - mAllocSizeStart;
+		Debug.stopAllocCounting();
+		if (SpringboardTrace.ENABLED) {
+			mReport.animationStarts = SpringboardTrace.getHistogram(SpringboardTrace.ANIMATION_START).getCount();
+			mReport.layoutPasses = SpringboardTrace.getHistogram(SpringboardTrace.LAYOUT).getCount();
+			mReport.childrenLaidOut = SpringboardTrace.getCount(SpringboardTrace.COUNT_LAYOUT_CHILD);
+		}
+		OnReplayFinishedListener listener = mListener;
+		Report report = mReport;
+		mView = null;
+		mListener = null;
+		if (listener != null) listener.onReplayFinished(report);
+	}
+}